@@ -0,0 +1,78 @@
+package com.example.myapplication;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aggregate outcome of a batch send.
+ */
+public final class BatchSendResult {
+    private final int count;
+    private final int sentCount;
+    private final long bytes;
+    private final long enqueuedAtNanos;
+    private final long firstStartNanos;
+    private final long lastSentNanos;
+    private final IOException firstError;
+
+    BatchSendResult(int count, int sentCount, long bytes, long enqueuedAtNanos,
+                    long firstStartNanos, long lastSentNanos, IOException firstError) {
+        this.count = count;
+        this.sentCount = sentCount;
+        this.bytes = bytes;
+        this.enqueuedAtNanos = enqueuedAtNanos;
+        this.firstStartNanos = firstStartNanos;
+        this.lastSentNanos = lastSentNanos;
+        this.firstError = firstError;
+    }
+
+    /**
+     * @return Number of payloads in the batch
+     */
+    public int getCount() {
+        return count;
+    }
+
+    public int getSentCount() {
+        return sentCount;
+    }
+
+    public int getFailedCount() {
+        return count - sentCount;
+    }
+
+    /**
+     * @return Total bytes of the payloads that were sent
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return Time from the first datagram starting to the last one reaching the kernel
+     */
+    public long getBurstDurationNanos() {
+        return lastSentNanos - firstStartNanos;
+    }
+
+    /**
+     * @return Time from the sendBatch call to the last datagram reaching the kernel
+     */
+    public long getLatencyNanos() {
+        return lastSentNanos - enqueuedAtNanos;
+    }
+
+    /**
+     * @return true if the whole batch went out within {@code budgetMillis}
+     */
+    public boolean isWithinBudget(long budgetMillis) {
+        return getFailedCount() == 0 && getBurstDurationNanos() <= TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+    }
+
+    /**
+     * @return The first socket error in the batch, or null if every payload was sent
+     */
+    public IOException getFirstError() {
+        return firstError;
+    }
+}
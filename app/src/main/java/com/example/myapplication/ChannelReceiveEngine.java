@@ -0,0 +1,134 @@
+package com.example.myapplication;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.MembershipKey;
+
+/**
+ * Receive engine built on an NIO {@link DatagramChannel}.
+ * Datagrams are received straight into the pooled packet's array through a heap
+ * {@link ByteBuffer} the packet keeps, and group membership is held as a
+ * {@link MembershipKey} so individual sources can be blocked.
+ */
+final class ChannelReceiveEngine implements ReceiveEngine {
+    private static final int MAX_CACHED_SENDERS = 256;
+
+    private final int maxDatagramSize;
+    private final SenderAddressCache senderAddresses = new SenderAddressCache(MAX_CACHED_SENDERS);
+    private final ReceiveStats stats = new ReceiveStats();
+
+    private volatile DatagramChannel channel;
+    private MembershipKey membershipKey;
+
+    ChannelReceiveEngine(int maxDatagramSize) {
+        this.maxDatagramSize = maxDatagramSize;
+    }
+
+    @Override
+    public void open(InetAddress group, int port, NetworkInterface networkInterface,
+                     int receiveBufferSize) throws IOException {
+        DatagramChannel newChannel = DatagramChannel.open(StandardProtocolFamily.INET);
+        try {
+            newChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            if (receiveBufferSize > 0) {
+                newChannel.setOption(StandardSocketOptions.SO_RCVBUF, receiveBufferSize);
+            }
+            newChannel.bind(new InetSocketAddress(port));
+            newChannel.configureBlocking(true);
+            membershipKey = newChannel.join(group, networkInterface);
+            channel = newChannel;
+        } catch (IOException e) {
+            newChannel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void receive(ReceivedPacket packet) throws IOException {
+        DatagramChannel current = channel;
+        if (current == null) {
+            throw new IOException("Channel closed");
+        }
+        // One spare byte reveals datagrams that did not fit
+        ByteBuffer buffer = packet.buffer();
+        buffer.limit(Math.min(buffer.capacity(), maxDatagramSize + 1));
+        SocketAddress source = current.receive(buffer);
+
+        long start = System.nanoTime();
+        int length = buffer.position();
+        if (length > maxDatagramSize) {
+            length = maxDatagramSize;
+            packet.truncated = true;
+            stats.recordTruncated();
+        }
+        packet.length = length;
+        packet.receivedAtNanos = start;
+        packet.sender = ((InetSocketAddress) source).getAddress();
+        packet.senderAddress = senderAddresses.lookup(packet.sender);
+        stats.record(length, System.nanoTime() - start);
+    }
+
+    @Override
+    public int getEffectiveReceiveBufferSize() {
+        DatagramChannel current = channel;
+        if (current == null) {
+            return 0;
+        }
+        try {
+            return current.getOption(StandardSocketOptions.SO_RCVBUF);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        DatagramChannel current = channel;
+        return current != null && current.isOpen();
+    }
+
+    @Override
+    public synchronized void close() {
+        DatagramChannel current = channel;
+        if (current == null) {
+            return;
+        }
+        channel = null;
+        if (membershipKey != null) {
+            membershipKey.drop();
+            membershipKey = null;
+        }
+        try {
+            current.close();
+        } catch (IOException e) {
+            // Nothing useful to do; the channel is unusable either way
+        }
+    }
+
+    @Override
+    public synchronized void blockSource(InetAddress source) throws IOException {
+        if (membershipKey == null) {
+            throw new IOException("Not joined to a group");
+        }
+        membershipKey.block(source);
+    }
+
+    @Override
+    public synchronized void unblockSource(InetAddress source) {
+        if (membershipKey != null) {
+            membershipKey.unblock(source);
+        }
+    }
+
+    @Override
+    public ReceiveStats getStats() {
+        return stats;
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.myapplication;
+
+/**
+ * Table-driven CRC-16/CCITT-FALSE (polynomial 0x1021, initial value 0xFFFF, no reflection),
+ * one table lookup per byte.
+ */
+final class Crc16Ccitt {
+    private static final int POLYNOMIAL = 0x1021;
+    private static final char[] TABLE = new char[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            int crc = i << 8;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = (crc & 0x8000) != 0 ? (crc << 1) ^ POLYNOMIAL : crc << 1;
+            }
+            TABLE[i] = (char) crc;
+        }
+    }
+
+    private Crc16Ccitt() {
+    }
+
+    static int compute(byte[] data, int offset, int length) {
+        int crc = 0xFFFF;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            crc = (crc << 8) ^ TABLE[((crc >>> 8) ^ data[i]) & 0xFF];
+        }
+        return crc & 0xFFFF;
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.myapplication;
+
+/**
+ * Table-driven CRC-32C (Castagnoli, reflected polynomial 0x82F63B78), processing four bytes
+ * per step with four tables ("slicing-by-4").
+ * {@code java.util.zip.CRC32C} gives the same result but needs API level 34.
+ */
+final class Crc32c {
+    private static final int POLYNOMIAL = 0x82F63B78;
+    private static final int[] T0 = new int[256];
+    private static final int[] T1 = new int[256];
+    private static final int[] T2 = new int[256];
+    private static final int[] T3 = new int[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            int crc = i;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = (crc & 1) != 0 ? (crc >>> 1) ^ POLYNOMIAL : crc >>> 1;
+            }
+            T0[i] = crc;
+        }
+        for (int i = 0; i < 256; i++) {
+            T1[i] = (T0[i] >>> 8) ^ T0[T0[i] & 0xFF];
+            T2[i] = (T1[i] >>> 8) ^ T0[T1[i] & 0xFF];
+            T3[i] = (T2[i] >>> 8) ^ T0[T2[i] & 0xFF];
+        }
+    }
+
+    private Crc32c() {
+    }
+
+    static int compute(byte[] data, int offset, int length) {
+        int crc = 0xFFFFFFFF;
+        int i = offset;
+        int end = offset + length;
+        for (int wordEnd = end - 3; i < wordEnd; i += 4) {
+            crc ^= (data[i] & 0xFF) | (data[i + 1] & 0xFF) << 8 | (data[i + 2] & 0xFF) << 16 | data[i + 3] << 24;
+            crc = T3[crc & 0xFF] ^ T2[(crc >>> 8) & 0xFF] ^ T1[(crc >>> 16) & 0xFF] ^ T0[crc >>> 24];
+        }
+        for (; i < end; i++) {
+            crc = (crc >>> 8) ^ T0[(crc ^ data[i]) & 0xFF];
+        }
+        return ~crc;
+    }
+}
@@ -0,0 +1,314 @@
+package com.example.myapplication;
+
+import android.util.Log;
+
+import java.util.function.Consumer;
+
+/**
+ * Per-datagram receive work of {@link MulticastService}, run on a decode worker (or the
+ * receiver thread without workers): NACKs are consumed, sequence numbers tracked and
+ * stripped, duplicates dropped, escaped payloads unwrapped, fragments reassembled and
+ * coalesced datagrams split into their messages, and 55 AA frames decoded.
+ * <p>
+ * Settings may be changed from any thread while datagrams are processed.
+ */
+final class DatagramProcessor implements ReceivePipeline.PacketProcessor {
+    private static final String TAG = "DatagramProcessor";
+
+    private final int senderId;
+    private final NackScheduler nackScheduler;
+    private final FrameDecoder frameDecoder;
+    private final SequenceTracker sequenceTracker = new SequenceTracker(16);
+
+    private volatile boolean sequenceNumbering;
+    private volatile boolean reliableDelivery;
+    private volatile boolean coalescing;
+    private volatile SequenceListener sequenceListener;
+    private volatile LossInjector lossInjector;
+    private volatile DuplicateFilter duplicateFilter;
+    private volatile Reassembler reassembler;
+    private volatile FrameListener frameListener;
+    private volatile MulticastSender sender;
+
+    private final SequenceListener reliableDeliveryListener = new SequenceListener() {
+        @Override
+        public void onGap(int senderId, int firstMissing, int count) {
+            if (senderId != DatagramProcessor.this.senderId) {
+                nackScheduler.onGap(senderId, firstMissing, count, System.nanoTime());
+                MulticastSender current = sender;
+                if (current != null) {
+                    current.wakeUp();
+                }
+            }
+            SequenceListener listener = sequenceListener;
+            if (listener != null) {
+                listener.onGap(senderId, firstMissing, count);
+            }
+        }
+
+        @Override
+        public void onReorder(int senderId, int sequence) {
+            nackScheduler.onReceived(senderId, sequence);
+            SequenceListener listener = sequenceListener;
+            if (listener != null) {
+                listener.onReorder(senderId, sequence);
+            }
+        }
+
+        @Override
+        public void onDuplicate(int senderId, int sequence) {
+            SequenceListener listener = sequenceListener;
+            if (listener != null) {
+                listener.onDuplicate(senderId, sequence);
+            }
+        }
+    };
+
+    /**
+     * @param senderId Id this node numbers its own datagrams with
+     * @param nackScheduler Schedules this node's NACKs; shared with its sender
+     * @param frameDecoder Decodes 55 AA frames found in messages
+     */
+    DatagramProcessor(int senderId, NackScheduler nackScheduler, FrameDecoder frameDecoder) {
+        this.senderId = senderId;
+        this.nackScheduler = nackScheduler;
+        this.frameDecoder = frameDecoder;
+    }
+
+    int getSenderId() {
+        return senderId;
+    }
+
+    SequenceTracker getSequenceTracker() {
+        return sequenceTracker;
+    }
+
+    NackScheduler getNackScheduler() {
+        return nackScheduler;
+    }
+
+    FrameDecoder getFrameDecoder() {
+        return frameDecoder;
+    }
+
+    /**
+     * Turns on tracking and stripping the sequence headers of numbered datagrams; set
+     * whenever this node numbers its own. Reliable delivery implies it.
+     */
+    void setSequenceNumbering(boolean enabled) {
+        this.sequenceNumbering = enabled;
+    }
+
+    boolean isSequenceNumbering() {
+        return sequenceNumbering;
+    }
+
+    /**
+     * Turns on NACKing missing datagrams, answering NACKs for our own and dropping repeats
+     * of datagrams already received.
+     */
+    void setReliableDelivery(boolean enabled) {
+        this.reliableDelivery = enabled;
+    }
+
+    boolean isReliableDelivery() {
+        return reliableDelivery;
+    }
+
+    /**
+     * Turns on splitting FE 'B' bundles into their messages; set whenever this node
+     * coalesces its own. Otherwise such datagrams are delivered as they are.
+     */
+    void setCoalescing(boolean enabled) {
+        this.coalescing = enabled;
+    }
+
+    boolean isCoalescing() {
+        return coalescing;
+    }
+
+    void setSequenceListener(SequenceListener sequenceListener) {
+        this.sequenceListener = sequenceListener;
+    }
+
+    void setLossInjector(LossInjector lossInjector) {
+        this.lossInjector = lossInjector;
+    }
+
+    void setDuplicateFilter(DuplicateFilter duplicateFilter) {
+        this.duplicateFilter = duplicateFilter;
+    }
+
+    DuplicateFilter getDuplicateFilter() {
+        return duplicateFilter;
+    }
+
+    /**
+     * Sets the reassembler for FE 'F' fragments, or null when this node does not use
+     * fragmentation; such datagrams are then delivered as they are.
+     */
+    void setReassembler(Reassembler reassembler) {
+        this.reassembler = reassembler;
+    }
+
+    Reassembler getReassembler() {
+        return reassembler;
+    }
+
+    void setFrameListener(FrameListener frameListener) {
+        this.frameListener = frameListener;
+    }
+
+    FrameListener getFrameListener() {
+        return frameListener;
+    }
+
+    /**
+     * Sets the sender that repeats our datagrams when NACKed and sends our NACKs, or null.
+     */
+    void setSender(MulticastSender sender) {
+        this.sender = sender;
+    }
+
+    @Override
+    public void process(ReceivedPacket packet, Consumer<ReceivedPacket> output) {
+        LossInjector injector = lossInjector;
+        if (injector != null && injector.shouldDrop(packet.data, 0, packet.length)) {
+            packet.recycle();
+            return;
+        }
+        boolean reliable = reliableDelivery;
+        if (reliable && NackCodec.isNack(packet.data, 0, packet.length)) {
+            handleNack(packet.data);
+            packet.recycle();
+            return;
+        }
+        DuplicateFilter filter = duplicateFilter;
+        long key;
+        // Only nodes taking part in numbering read the header; the sender escapes
+        // payloads that merely start like one
+        if ((reliable || sequenceNumbering) && SequenceCodec.isSequenced(packet.data, 0, packet.length)) {
+            int id = SequenceCodec.senderId(packet.data, 0);
+            int sequence = SequenceCodec.sequence(packet.data, 0);
+            boolean first = sequenceTracker.record(id, sequence,
+                    reliable ? reliableDeliveryListener : sequenceListener);
+            stripSequenceHeader(packet);
+            // Repeats go to every node, including those that already had the datagram
+            if ((!first && reliable) || SequenceCodec.isHeartbeat(packet.data, 0, packet.length)) {
+                packet.recycle();
+                return;
+            }
+            key = filter != null ? DuplicateFilter.sequenceKey(id, sequence) : 0;
+        } else {
+            key = filter != null ? DuplicateFilter.payloadKey(packet.data, 0, packet.length) : 0;
+        }
+        if (filter != null && filter.isDuplicate(key, packet.receivedAtNanos)) {
+            packet.recycle();
+            return;
+        }
+        // Senders only escape payloads while they use FE datagrams of their own
+        Reassembler currentReassembler = reassembler;
+        boolean markers = reliable || sequenceNumbering || coalescing || currentReassembler != null;
+        if (markers && PayloadEscape.isEscaped(packet.data, 0, packet.length)) {
+            packet.length -= PayloadEscape.HEADER_LENGTH;
+            System.arraycopy(packet.data, PayloadEscape.HEADER_LENGTH, packet.data, 0, packet.length);
+            processMessage(packet, output);
+            return;
+        }
+        if (currentReassembler != null && !packet.truncated
+                && FragmentCodec.isFragment(packet.data, 0, packet.length)) {
+            reassemble(currentReassembler, packet, output);
+            return;
+        }
+        if (coalescing && !packet.truncated && MessageBundle.countMessages(packet.data, 0, packet.length) > 0) {
+            splitBundle(packet, output);
+            return;
+        }
+        processMessage(packet, output);
+    }
+
+    private void processMessage(ReceivedPacket packet, Consumer<ReceivedPacket> output) {
+        if (FrameDecoder.startsWithFrame(packet.data, 0, packet.length)) {
+            frameDecoder.decode(packet.data, 0, packet.length, packet.sender, frameListener);
+        }
+        boolean text = packet.isText();
+        if (Log.isLoggable(TAG, Log.VERBOSE)) {
+            Log.v(TAG, "Received " + packet.length + " bytes from " + packet.senderAddress +
+                    (text ? " (text)" : " (binary)"));
+        }
+        output.accept(packet);
+    }
+
+    /**
+     * Queues repeats of our datagrams that another node NACKed, and holds back our own
+     * NACKs for datagrams it asked for too.
+     */
+    private void handleNack(byte[] nack) {
+        if (NackCodec.requesterId(nack, 0) == senderId) {
+            // Our own NACK, looped back
+            return;
+        }
+        MulticastSender current = sender;
+        long now = System.nanoTime();
+        for (int entry = 0, entries = NackCodec.entryCount(nack, 0); entry < entries; entry++) {
+            int id = NackCodec.senderId(nack, 0, entry);
+            int first = NackCodec.firstSequence(nack, 0, entry);
+            int run = NackCodec.run(nack, 0, entry);
+            if (id == senderId) {
+                if (current != null && current.getRetransmitBuffer() != null) {
+                    current.requestRetransmit(first, run);
+                }
+            } else {
+                nackScheduler.onNackHeard(id, first, run, now);
+            }
+        }
+    }
+
+    private static void stripSequenceHeader(ReceivedPacket packet) {
+        packet.length -= SequenceCodec.HEADER_LENGTH;
+        System.arraycopy(packet.data, SequenceCodec.HEADER_LENGTH, packet.data, 0, packet.length);
+    }
+
+    /**
+     * Adds a fragment to its message and hands the message on once complete, as an
+     * unpooled packet sized to fit it. The fragment itself is recycled.
+     */
+    private void reassemble(Reassembler reassembler, ReceivedPacket fragment, Consumer<ReceivedPacket> output) {
+        byte[] completed = reassembler.offer(fragment.sender != null ? fragment.sender.hashCode() : 0,
+                fragment.data, 0, fragment.length, System.nanoTime());
+        if (completed != null) {
+            // Outside the reassembler's lock, so frame listeners and a full delivery queue
+            // do not hold up fragments on other workers
+            ReceivedPacket message = new ReceivedPacket(completed);
+            message.sender = fragment.sender;
+            message.senderAddress = fragment.senderAddress;
+            message.receivedAtNanos = fragment.receivedAtNanos;
+            processMessage(message, output);
+        }
+        fragment.recycle();
+    }
+
+    /**
+     * Hands each message of a coalesced datagram on as a packet of its own, copied into
+     * a packet from the same pool, and recycles the datagram.
+     */
+    private void splitBundle(ReceivedPacket bundle, Consumer<ReceivedPacket> output) {
+        byte[] data = bundle.data;
+        int end = bundle.length;
+        int position = MessageBundle.HEADER_LENGTH;
+        while (position < end) {
+            int length = MessageBundle.readLength(data, position);
+            position += MessageBundle.ENTRY_OVERHEAD;
+            ReceivedPacket message = bundle.pool.acquire();
+            System.arraycopy(data, position, message.data, 0, length);
+            message.length = length;
+            message.sender = bundle.sender;
+            message.senderAddress = bundle.senderAddress;
+            message.receivedAtNanos = bundle.receivedAtNanos;
+            position += length;
+            // Not split again: a bundled message that looks like a bundle was sent as is
+            processMessage(message, output);
+        }
+        bundle.recycle();
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.myapplication;
+
+/**
+ * Remembers the keys of the last {@code window} datagrams in a ring and reports a datagram
+ * as a duplicate if its key is among them and no older than the maximum age. Keys are
+ * 64-bit: the sender id and sequence number for numbered datagrams ({@link SequenceCodec}),
+ * otherwise a hash of the payload, so copies relayed from another address still match.
+ * <p>
+ * Memory is fixed at construction: the ring plus an open-addressing index into it, kept at
+ * most half full. Evicted keys are removed from the index by backward shifting, so lookups
+ * never wade through tombstones. Thread-safe.
+ */
+final class DuplicateFilter {
+    private static final long FNV_OFFSET = 0xCBF29CE484222325L;
+    private static final long FNV_PRIME = 0x100000001B3L;
+
+    private final long maxAgeNanos;
+    private final long[] keys;
+    private final long[] times;
+    // Ring position + 1 of each key, 0 for an empty bucket
+    private final int[] index;
+    // Oldest ring slot, overwritten next; a key of 0 marks a free slot
+    private int next;
+    private long suppressed;
+
+    /**
+     * @param window Datagrams remembered
+     * @param maxAgeNanos Age after which a repeat counts as a new datagram, e.g. a beacon
+     */
+    DuplicateFilter(int window, long maxAgeNanos) {
+        if (window <= 0 || maxAgeNanos <= 0) {
+            throw new IllegalArgumentException("Window and age must be positive");
+        }
+        this.maxAgeNanos = maxAgeNanos;
+        this.keys = new long[window];
+        this.times = new long[window];
+        this.index = new int[Integer.highestOneBit(window * 2 - 1) << 1];
+    }
+
+    /**
+     * @return Key of a numbered datagram
+     */
+    static long sequenceKey(int senderId, int sequence) {
+        return nonZero(mix((long) senderId << 32 | (sequence & 0xFFFFFFFFL)));
+    }
+
+    /**
+     * @return Key of an unnumbered datagram: a 64-bit FNV-1a hash of its bytes
+     */
+    static long payloadKey(byte[] data, int offset, int length) {
+        long hash = FNV_OFFSET;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            hash = (hash ^ (data[i] & 0xFF)) * FNV_PRIME;
+        }
+        return nonZero(mix(hash ^ length));
+    }
+
+    // Finaliser from MurmurHash3, so both key kinds spread over all 64 bits
+    private static long mix(long h) {
+        h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+        h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
+    }
+
+    private static long nonZero(long key) {
+        return key != 0 ? key : 1;
+    }
+
+    /**
+     * Records a datagram.
+     *
+     * @return true if it repeats one seen within the window and age, and should be dropped
+     */
+    synchronized boolean isDuplicate(long key, long nowNanos) {
+        int bucket = find(key);
+        if (index[bucket] != 0) {
+            int slot = index[bucket] - 1;
+            if (nowNanos - times[slot] <= maxAgeNanos) {
+                suppressed++;
+                return true;
+            }
+            // Same content after the age limit: a new datagram, remembered afresh
+            remove(bucket);
+            keys[slot] = 0;
+        }
+        if (keys[next] != 0) {
+            remove(find(keys[next]));
+        }
+        keys[next] = key;
+        times[next] = nowNanos;
+        index[find(key)] = next + 1;
+        next = (next + 1) % keys.length;
+        return false;
+    }
+
+    private int find(long key) {
+        int mask = index.length - 1;
+        int bucket = (int) key & mask;
+        while (index[bucket] != 0 && keys[index[bucket] - 1] != key) {
+            bucket = (bucket + 1) & mask;
+        }
+        return bucket;
+    }
+
+    private void remove(int bucket) {
+        int mask = index.length - 1;
+        index[bucket] = 0;
+        int hole = bucket;
+        int current = (bucket + 1) & mask;
+        while (index[current] != 0) {
+            int home = (int) keys[index[current] - 1] & mask;
+            // Move the entry back if the hole lies between its home bucket and where it is
+            if (((current - home) & mask) >= ((current - hole) & mask)) {
+                index[hole] = index[current];
+                index[current] = 0;
+                hole = current;
+            }
+            current = (current + 1) & mask;
+        }
+    }
+
+    int getWindow() {
+        return keys.length;
+    }
+
+    synchronized long getSuppressedCount() {
+        return suppressed;
+    }
+}
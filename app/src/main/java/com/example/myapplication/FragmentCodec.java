@@ -0,0 +1,71 @@
+package com.example.myapplication;
+
+/**
+ * Header of one fragment of a message too large for a single datagram:
+ * <pre>
+ * FE 'F' | message id (4) | index (2) | count (2) | total length (4) | fragment bytes
+ * </pre>
+ * All fields are big-endian. Every fragment but the last carries the same number of bytes,
+ * so a fragment's position in the message follows from its index and length.
+ */
+final class FragmentCodec {
+    static final byte MARKER = (byte) 0xFE;
+    static final byte TYPE = 'F';
+    static final int HEADER_LENGTH = 14;
+    static final int MAX_FRAGMENTS = 0xFFFF;
+
+    private FragmentCodec() {
+    }
+
+    static boolean isFragment(byte[] data, int offset, int length) {
+        return length > HEADER_LENGTH && data[offset] == MARKER && data[offset + 1] == TYPE;
+    }
+
+    /**
+     * @return Number of fragments needed for {@code totalLength} bytes, at most
+     * {@code fragmentSize - HEADER_LENGTH} message bytes each
+     */
+    static int fragmentCount(int totalLength, int fragmentSize) {
+        int chunk = fragmentSize - HEADER_LENGTH;
+        return (totalLength + chunk - 1) / chunk;
+    }
+
+    static void writeHeader(byte[] out, int messageId, int index, int count, int totalLength) {
+        out[0] = MARKER;
+        out[1] = TYPE;
+        writeInt(out, 2, messageId);
+        out[6] = (byte) (index >>> 8);
+        out[7] = (byte) index;
+        out[8] = (byte) (count >>> 8);
+        out[9] = (byte) count;
+        writeInt(out, 10, totalLength);
+    }
+
+    static int messageId(byte[] data, int offset) {
+        return readInt(data, offset + 2);
+    }
+
+    static int index(byte[] data, int offset) {
+        return (data[offset + 6] & 0xFF) << 8 | (data[offset + 7] & 0xFF);
+    }
+
+    static int count(byte[] data, int offset) {
+        return (data[offset + 8] & 0xFF) << 8 | (data[offset + 9] & 0xFF);
+    }
+
+    static int totalLength(byte[] data, int offset) {
+        return readInt(data, offset + 10);
+    }
+
+    static void writeInt(byte[] out, int position, int value) {
+        out[position] = (byte) (value >>> 24);
+        out[position + 1] = (byte) (value >>> 16);
+        out[position + 2] = (byte) (value >>> 8);
+        out[position + 3] = (byte) value;
+    }
+
+    static int readInt(byte[] data, int position) {
+        return (data[position] & 0xFF) << 24 | (data[position + 1] & 0xFF) << 16
+                | (data[position + 2] & 0xFF) << 8 | (data[position + 3] & 0xFF);
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.myapplication;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Writes one 55 AA frame straight into a reusable heap {@link ByteBuffer}:
+ * <pre>
+ * 55 AA | opcode | length | payload (length bytes) | checksum (1-4 bytes)
+ * </pre>
+ * The checksum covers the opcode, length and payload bytes. By default it is
+ * {@link FrameChecksum#SUM8}, their sum modulo 256; the service's
+ * {@link MulticastService#setFrameChecksum frame checksum} selects another.
+ * Multi-byte fields are big-endian.
+ * <p>
+ * Obtain a builder from {@link MulticastService#newFrame(int)}, add fields and pass it to
+ * {@link MulticastService#sendFrame(FrameBuilder)}; the builder returns to its pool once
+ * the frame has been sent. A builder is not thread-safe.
+ */
+public final class FrameBuilder {
+    static final int HEADER_0 = 0x55;
+    static final int HEADER_1 = 0xAA;
+    /** Bytes before the payload: 55 AA, opcode and length */
+    static final int HEADER_LENGTH = 4;
+    static final int MAX_PAYLOAD_LENGTH = 255;
+    /** Largest frame on the wire, including the widest checksum */
+    static final int MAX_FRAME_LENGTH = HEADER_LENGTH + MAX_PAYLOAD_LENGTH + 4;
+
+    final FramePool pool;
+    private final ByteBuffer buffer = ByteBuffer.allocate(MAX_FRAME_LENGTH).order(ByteOrder.BIG_ENDIAN);
+    private FrameChecksum checksum = FrameChecksum.SUM8;
+    private boolean finished;
+
+    FrameBuilder() {
+        this(null);
+    }
+
+    FrameBuilder(FramePool pool) {
+        this.pool = pool;
+        begin(0);
+    }
+
+    /**
+     * Sets the checksum used by frames finished from now on.
+     */
+    void setChecksum(FrameChecksum checksum) {
+        this.checksum = checksum;
+    }
+
+    /**
+     * Starts a new frame, discarding anything written so far.
+     *
+     * @param opcode Frame type, 0-255
+     */
+    public FrameBuilder begin(int opcode) {
+        if (opcode < 0 || opcode > 0xFF) {
+            throw new IllegalArgumentException("Opcode must be 0-255: " + opcode);
+        }
+        buffer.clear();
+        // Leave room for the checksum while fields are written
+        buffer.limit(HEADER_LENGTH + MAX_PAYLOAD_LENGTH);
+        buffer.put((byte) HEADER_0).put((byte) HEADER_1).put((byte) opcode).put((byte) 0);
+        finished = false;
+        return this;
+    }
+
+    public FrameBuilder putByte(int value) {
+        checkWritable();
+        buffer.put((byte) value);
+        return this;
+    }
+
+    public FrameBuilder putShort(int value) {
+        checkWritable();
+        buffer.putShort((short) value);
+        return this;
+    }
+
+    public FrameBuilder putInt(int value) {
+        checkWritable();
+        buffer.putInt(value);
+        return this;
+    }
+
+    public FrameBuilder putBytes(byte[] bytes, int offset, int length) {
+        checkWritable();
+        buffer.put(bytes, offset, length);
+        return this;
+    }
+
+    /**
+     * Writes the chars of {@code text} as single bytes; intended for ASCII identifiers.
+     */
+    public FrameBuilder putAscii(CharSequence text) {
+        checkWritable();
+        if (buffer.remaining() < text.length()) {
+            throw new BufferOverflowException();
+        }
+        for (int i = 0; i < text.length(); i++) {
+            buffer.put((byte) text.charAt(i));
+        }
+        return this;
+    }
+
+    /**
+     * @return Payload bytes written so far
+     */
+    public int getPayloadLength() {
+        return (finished ? buffer.limit() - checksum.getWidth() : buffer.position()) - HEADER_LENGTH;
+    }
+
+    /**
+     * Fills in the length and checksum. Further writes need a new {@link #begin}.
+     *
+     * @return The frame, from position 0 to its limit; backed by this builder's array
+     */
+    ByteBuffer finish() {
+        if (!finished) {
+            byte[] frame = buffer.array();
+            int end = buffer.position();
+            frame[3] = (byte) (end - HEADER_LENGTH);
+            checksum.write(frame, 2, end - 2, end);
+            buffer.limit(end + checksum.getWidth());
+            buffer.position(buffer.limit());
+            buffer.flip();
+            finished = true;
+        }
+        return buffer;
+    }
+
+    /**
+     * Returns the builder to its pool. The frame must no longer be in use.
+     */
+    void recycle() {
+        if (pool != null) {
+            pool.release(this);
+        }
+    }
+
+    private void checkWritable() {
+        if (finished) {
+            throw new IllegalStateException("Frame already finished; call begin() first");
+        }
+    }
+}
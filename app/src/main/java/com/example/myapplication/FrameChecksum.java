@@ -0,0 +1,76 @@
+package com.example.myapplication;
+
+/**
+ * Integrity check at the end of a 55 AA frame, computed over the opcode, length and
+ * payload bytes and written big-endian. Sender and receivers must use the same one.
+ */
+public enum FrameChecksum {
+    /** Sum of the bytes modulo 256; the original check, blind to reordered bytes */
+    SUM8(1) {
+        @Override
+        int compute(byte[] data, int offset, int length) {
+            int sum = 0;
+            for (int i = offset, end = offset + length; i < end; i++) {
+                sum += data[i];
+            }
+            return sum & 0xFF;
+        }
+    },
+    /** CRC-16/CCITT-FALSE: polynomial 0x1021, initial value 0xFFFF */
+    CRC16_CCITT(2) {
+        @Override
+        int compute(byte[] data, int offset, int length) {
+            return Crc16Ccitt.compute(data, offset, length);
+        }
+    },
+    /** CRC-32C (Castagnoli), as used by iSCSI and ext4 */
+    CRC32C(4) {
+        @Override
+        int compute(byte[] data, int offset, int length) {
+            return Crc32c.compute(data, offset, length);
+        }
+    };
+
+    private final int width;
+
+    FrameChecksum(int width) {
+        this.width = width;
+    }
+
+    /**
+     * @return Number of checksum bytes at the end of a frame
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return Checksum of the range, in the low {@link #getWidth()} bytes
+     */
+    abstract int compute(byte[] data, int offset, int length);
+
+    /**
+     * Computes the checksum of a range and writes it big-endian at {@code target}.
+     */
+    void write(byte[] data, int offset, int length, int target) {
+        int value = compute(data, offset, length);
+        for (int i = width - 1; i >= 0; i--) {
+            data[target + i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+
+    /**
+     * @return true if the checksum stored big-endian at {@code stored} matches the range
+     */
+    boolean matches(byte[] data, int offset, int length, int stored) {
+        int value = compute(data, offset, length);
+        for (int i = width - 1; i >= 0; i--) {
+            if (data[stored + i] != (byte) value) {
+                return false;
+            }
+            value >>>= 8;
+        }
+        return true;
+    }
+}
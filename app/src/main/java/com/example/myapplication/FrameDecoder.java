@@ -0,0 +1,142 @@
+package com.example.myapplication;
+
+import java.net.InetAddress;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Receive-side codec for the 55 AA frames written by {@link FrameBuilder}.
+ * <p>
+ * Frames are validated in place on the datagram buffer and handed out as reused
+ * {@link FrameView}s, so decoding allocates nothing. A datagram may carry several frames
+ * back to back. A frame whose checksum does not match is skipped and counted against its
+ * sender; a datagram that stops following the frame layout ends decoding there and is
+ * counted as malformed.
+ * <p>
+ * {@link #decode} may be called from several decode workers at once.
+ */
+final class FrameDecoder {
+    private static final int MIN_FRAME_LENGTH = FrameBuilder.HEADER_LENGTH + 1;
+
+    private volatile FrameChecksum checksum = FrameChecksum.SUM8;
+    private final ThreadLocal<FrameView> views = new ThreadLocal<FrameView>() {
+        @Override
+        protected FrameView initialValue() {
+            return new FrameView();
+        }
+    };
+    // Keyed by InetAddress.hashCode(), which is the address itself for IPv4
+    private final IntLongHashMap checksumFailures = new IntLongHashMap(16);
+    private long totalChecksumFailures;
+    private long malformed;
+    private final AtomicLong decodedFrames = new AtomicLong();
+
+    /**
+     * Sets the checksum expected at the end of each frame; must match the senders'.
+     */
+    void setChecksum(FrameChecksum checksum) {
+        this.checksum = checksum;
+    }
+
+    FrameChecksum getChecksum() {
+        return checksum;
+    }
+
+    /**
+     * @return true if the datagram starts with a 55 AA header
+     */
+    static boolean startsWithFrame(byte[] data, int offset, int length) {
+        return length >= MIN_FRAME_LENGTH
+                && (data[offset] & 0xFF) == FrameBuilder.HEADER_0
+                && (data[offset + 1] & 0xFF) == FrameBuilder.HEADER_1;
+    }
+
+    /**
+     * Reads the header of the frame at {@code offset}.
+     *
+     * @return Length of the whole frame, header to checksum, per its length byte; or -1 if
+     * there is no 55 AA header or the frame runs past {@code length}
+     */
+    static int frameLength(byte[] data, int offset, int length, FrameChecksum checksum) {
+        if (!startsWithFrame(data, offset, length)) {
+            return -1;
+        }
+        int frameLength = FrameBuilder.HEADER_LENGTH + (data[offset + 3] & 0xFF) + checksum.getWidth();
+        return frameLength <= length ? frameLength : -1;
+    }
+
+    /**
+     * Decodes every frame in a datagram that starts with a 55 AA header.
+     *
+     * @param listener Receives each valid frame, or null to only validate and count
+     * @return Number of valid frames found
+     */
+    int decode(byte[] data, int offset, int length, InetAddress sender, FrameListener listener) {
+        FrameView view = views.get();
+        FrameChecksum checksum = this.checksum;
+        int end = offset + length;
+        int position = offset;
+        int frames = 0;
+        while (position < end) {
+            int frameLength = frameLength(data, position, end - position, checksum);
+            if (frameLength < 0) {
+                recordMalformed();
+                break;
+            }
+            int payloadLength = data[position + 3] & 0xFF;
+            int checksumIndex = position + frameLength - checksum.getWidth();
+            if (checksum.matches(data, position + 2, checksumIndex - position - 2, checksumIndex)) {
+                frames++;
+                if (listener != null) {
+                    view.set(data, position, payloadLength, sender);
+                    listener.onFrame(view);
+                }
+            } else {
+                recordChecksumFailure(sender);
+            }
+            position += frameLength;
+        }
+        view.set(null, 0, 0, null);
+        if (frames > 0) {
+            decodedFrames.addAndGet(frames);
+        }
+        return frames;
+    }
+
+    private synchronized void recordChecksumFailure(InetAddress sender) {
+        totalChecksumFailures++;
+        checksumFailures.addTo(sender != null ? sender.hashCode() : 0, 1);
+    }
+
+    private synchronized void recordMalformed() {
+        malformed++;
+    }
+
+    long getDecodedFrameCount() {
+        return decodedFrames.get();
+    }
+
+    /**
+     * @return Frames from {@code sender} dropped because their checksum did not match
+     */
+    synchronized long getChecksumFailures(InetAddress sender) {
+        return checksumFailures.get(sender.hashCode());
+    }
+
+    synchronized long getTotalChecksumFailures() {
+        return totalChecksumFailures;
+    }
+
+    /**
+     * @return Number of senders that had at least one checksum failure
+     */
+    synchronized int getFailingSenderCount() {
+        return checksumFailures.size();
+    }
+
+    /**
+     * @return Datagrams that started with a frame but did not continue as frames
+     */
+    synchronized long getMalformedCount() {
+        return malformed;
+    }
+}
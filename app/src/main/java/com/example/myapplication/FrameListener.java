@@ -0,0 +1,12 @@
+package com.example.myapplication;
+
+/**
+ * Receives 55 AA frames decoded from incoming datagrams.
+ */
+public interface FrameListener {
+    /**
+     * Called on a decode worker thread for each valid frame, in the order the frames
+     * appear in the datagram. The view is reused once this method returns.
+     */
+    void onFrame(FrameView frame);
+}
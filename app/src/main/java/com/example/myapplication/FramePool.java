@@ -0,0 +1,49 @@
+package com.example.myapplication;
+
+/**
+ * Pool of {@link FrameBuilder}s shared by the threads that build frames and the sender
+ * thread that releases them once sent. Grows on demand and keeps at most
+ * {@code maxPooled} idle builders, so a steady stream of frames allocates nothing.
+ */
+final class FramePool {
+    private final FrameBuilder[] idle;
+    private int idleCount;
+    private int createdCount;
+
+    FramePool(int maxPooled) {
+        if (maxPooled <= 0) {
+            throw new IllegalArgumentException("maxPooled must be positive");
+        }
+        this.idle = new FrameBuilder[maxPooled];
+    }
+
+    synchronized FrameBuilder acquire() {
+        if (idleCount > 0) {
+            FrameBuilder builder = idle[--idleCount];
+            idle[idleCount] = null;
+            return builder;
+        }
+        createdCount++;
+        return new FrameBuilder(this);
+    }
+
+    synchronized void release(FrameBuilder builder) {
+        if (builder.pool != this) {
+            throw new IllegalArgumentException("Builder belongs to another pool");
+        }
+        if (idleCount < idle.length) {
+            idle[idleCount++] = builder;
+        }
+    }
+
+    /**
+     * @return Number of builders allocated by this pool since it was created
+     */
+    synchronized int getCreatedCount() {
+        return createdCount;
+    }
+
+    synchronized int getIdleCount() {
+        return idleCount;
+    }
+}
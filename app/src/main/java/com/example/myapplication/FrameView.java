@@ -0,0 +1,88 @@
+package com.example.myapplication;
+
+import java.net.InetAddress;
+import java.util.Arrays;
+
+/**
+ * A decoded 55 AA frame, as a view into the received datagram.
+ * <p>
+ * Views are reused: one is only valid during the {@link FrameListener#onFrame} call that
+ * receives it. Use {@link #copyPayload()} to keep the payload.
+ */
+public final class FrameView {
+    byte[] data;
+    int frameOffset;
+    int payloadLength;
+    InetAddress sender;
+
+    void set(byte[] data, int frameOffset, int payloadLength, InetAddress sender) {
+        this.data = data;
+        this.frameOffset = frameOffset;
+        this.payloadLength = payloadLength;
+        this.sender = sender;
+    }
+
+    /**
+     * @return Frame type, 0-255
+     */
+    public int getOpcode() {
+        return data[frameOffset + 2] & 0xFF;
+    }
+
+    public int getPayloadLength() {
+        return payloadLength;
+    }
+
+    /**
+     * @return Buffer holding the payload at {@link #getPayloadOffset()}; reused after the callback
+     */
+    public byte[] getData() {
+        return data;
+    }
+
+    public int getPayloadOffset() {
+        return frameOffset + FrameBuilder.HEADER_LENGTH;
+    }
+
+    /**
+     * @return Unsigned payload byte at {@code index}
+     */
+    public int getByte(int index) {
+        checkIndex(index, 1);
+        return data[getPayloadOffset() + index] & 0xFF;
+    }
+
+    /**
+     * @return Unsigned big-endian 16-bit payload field at {@code index}
+     */
+    public int getShort(int index) {
+        checkIndex(index, 2);
+        int position = getPayloadOffset() + index;
+        return (data[position] & 0xFF) << 8 | (data[position + 1] & 0xFF);
+    }
+
+    /**
+     * @return Big-endian 32-bit payload field at {@code index}
+     */
+    public int getInt(int index) {
+        checkIndex(index, 4);
+        int position = getPayloadOffset() + index;
+        return (data[position] & 0xFF) << 24 | (data[position + 1] & 0xFF) << 16
+                | (data[position + 2] & 0xFF) << 8 | (data[position + 3] & 0xFF);
+    }
+
+    public byte[] copyPayload() {
+        int offset = getPayloadOffset();
+        return Arrays.copyOfRange(data, offset, offset + payloadLength);
+    }
+
+    public InetAddress getSender() {
+        return sender;
+    }
+
+    private void checkIndex(int index, int width) {
+        if (index < 0 || index + width > payloadLength) {
+            throw new IndexOutOfBoundsException("Index " + index + ", payload length " + payloadLength);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.myapplication;
+
+/**
+ * Conversions between bytes and their hex representation.
+ * <p>
+ * Encoding is table-driven and can write straight into a caller-supplied {@code char[]}
+ * or {@link StringBuilder}, so a reused buffer makes it allocation-free.
+ */
+final class HexCodec {
+    /** Pass as separator to emit the digits with nothing between bytes */
+    static final char NO_SEPARATOR = 0;
+    /** Pass as bytesPerLine to keep all bytes on one line */
+    static final int NO_WRAP = 0;
+
+    private static final char[] DIGITS = "0123456789ABCDEF".toCharArray();
+
+    private HexCodec() {
+    }
+
+    /**
+     * Converts a byte range to hex string representation
+     * @param bytes The byte array to convert
+     * @param offset Index of the first byte
+     * @param length Number of bytes to convert
+     * @return Hex string in format "55 AA 02 6B DA"
+     */
+    static String toHexString(byte[] bytes, int offset, int length) {
+        return toHexString(bytes, offset, length, ' ', NO_WRAP);
+    }
+
+    /**
+     * Converts a byte range to hex, e.g. for a multi-line hex dump
+     * @param separator Character between bytes on the same line, or {@link #NO_SEPARATOR}
+     * @param bytesPerLine Bytes per line before a '\n', or {@link #NO_WRAP}
+     */
+    static String toHexString(byte[] bytes, int offset, int length, char separator, int bytesPerLine) {
+        if (bytes == null || length == 0) {
+            return "";
+        }
+        char[] chars = new char[encodedLength(length, separator, bytesPerLine)];
+        int written = encode(bytes, offset, length, chars, 0, separator, bytesPerLine);
+        return new String(chars, 0, written);
+    }
+
+    /**
+     * @return Number of chars {@link #encode} writes for {@code length} bytes
+     */
+    static int encodedLength(int length, char separator, int bytesPerLine) {
+        if (length <= 0) {
+            return 0;
+        }
+        int gaps = length - 1;
+        if (separator == NO_SEPARATOR && bytesPerLine > 0) {
+            // Only line breaks fall between bytes
+            gaps = (length - 1) / bytesPerLine;
+        } else if (separator == NO_SEPARATOR) {
+            gaps = 0;
+        }
+        return length * 2 + gaps;
+    }
+
+    /**
+     * Writes the hex form of a byte range into {@code dst}. The destination must have room for
+     * {@link #encodedLength} chars.
+     *
+     * @return Number of chars written
+     */
+    static int encode(byte[] src, int offset, int length, char[] dst, int dstOffset,
+                      char separator, int bytesPerLine) {
+        int pos = dstOffset;
+        int column = 0;
+        for (int i = 0; i < length; i++) {
+            if (i > 0) {
+                if (bytesPerLine > 0 && column == bytesPerLine) {
+                    dst[pos++] = '\n';
+                    column = 0;
+                } else if (separator != NO_SEPARATOR) {
+                    dst[pos++] = separator;
+                }
+            }
+            int b = src[offset + i] & 0xFF;
+            dst[pos++] = DIGITS[b >>> 4];
+            dst[pos++] = DIGITS[b & 0x0F];
+            column++;
+        }
+        return pos - dstOffset;
+    }
+
+    /**
+     * Appends the hex form of a byte range to {@code out}, which may be reused between calls.
+     *
+     * @return {@code out}
+     */
+    static StringBuilder appendHex(StringBuilder out, byte[] src, int offset, int length,
+                                   char separator, int bytesPerLine) {
+        out.ensureCapacity(out.length() + encodedLength(length, separator, bytesPerLine));
+        int column = 0;
+        for (int i = 0; i < length; i++) {
+            if (i > 0) {
+                if (bytesPerLine > 0 && column == bytesPerLine) {
+                    out.append('\n');
+                    column = 0;
+                } else if (separator != NO_SEPARATOR) {
+                    out.append(separator);
+                }
+            }
+            int b = src[offset + i] & 0xFF;
+            out.append(DIGITS[b >>> 4]).append(DIGITS[b & 0x0F]);
+            column++;
+        }
+        return out;
+    }
+}
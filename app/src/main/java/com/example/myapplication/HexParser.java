@@ -0,0 +1,137 @@
+package com.example.myapplication;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Reusable single-pass parser from hex text to bytes, the inverse of
+ * {@link HexCodec#toHexString}.
+ * <p>
+ * Accepts whitespace-separated bytes ("55 AA 02"), single-digit bytes ("5 A" is 05 0A)
+ * and compact runs of digit pairs ("55AA02") such as pasted dumps, in upper or lower case.
+ * Bytes are written into an internal buffer that is reused across calls; on failure the
+ * exact character position of the problem is reported. Not thread-safe.
+ */
+final class HexParser {
+    private static final byte[] DIGIT_VALUES = new byte[128];
+
+    static {
+        Arrays.fill(DIGIT_VALUES, (byte) -1);
+        for (int i = 0; i < 10; i++) {
+            DIGIT_VALUES['0' + i] = (byte) i;
+        }
+        for (int i = 0; i < 6; i++) {
+            DIGIT_VALUES['A' + i] = (byte) (10 + i);
+            DIGIT_VALUES['a' + i] = (byte) (10 + i);
+        }
+    }
+
+    private byte[] buffer = new byte[64];
+    private int length;
+    private int errorIndex = -1;
+    private String errorMessage;
+
+    /**
+     * Parses {@code text}, replacing the result of any previous call.
+     *
+     * @return true if the text held at least one byte and no errors
+     */
+    boolean parse(CharSequence text) {
+        length = 0;
+        errorIndex = -1;
+        errorMessage = null;
+        int n = text.length();
+        if (buffer.length < (n + 1) / 2) {
+            buffer = new byte[(n + 1) / 2];
+        }
+
+        int digits = 0;
+        int high = 0;
+        int tokenStart = 0;
+        // One extra iteration with a virtual separator ends the last token
+        for (int i = 0; i <= n; i++) {
+            char c = i < n ? text.charAt(i) : ' ';
+            int value = c < 128 ? DIGIT_VALUES[c] : -1;
+            if (value >= 0) {
+                if (digits == 0) {
+                    tokenStart = i;
+                }
+                if ((digits & 1) == 0) {
+                    high = value;
+                } else {
+                    buffer[length++] = (byte) (high << 4 | value);
+                }
+                digits++;
+            } else if (isSeparator(c)) {
+                if (digits == 1) {
+                    buffer[length++] = (byte) high;
+                } else if ((digits & 1) != 0) {
+                    return fail(tokenStart, "Odd number of hex digits");
+                }
+                digits = 0;
+            } else {
+                return fail(i, "Invalid hex character '" + c + "'");
+            }
+        }
+        if (length == 0) {
+            return fail(0, "No hex bytes");
+        }
+        return true;
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || Character.isWhitespace(c);
+    }
+
+    private boolean fail(int index, String message) {
+        length = 0;
+        errorIndex = index;
+        errorMessage = message;
+        return false;
+    }
+
+    /**
+     * @return Buffer holding the parsed bytes from index 0; reused by the next parse
+     */
+    byte[] getBuffer() {
+        return buffer;
+    }
+
+    int getLength() {
+        return length;
+    }
+
+    /**
+     * @return Unsigned value of a parsed byte
+     */
+    int get(int index) {
+        if (index >= length) {
+            throw new IndexOutOfBoundsException("Index " + index + ", length " + length);
+        }
+        return buffer[index] & 0xFF;
+    }
+
+    /**
+     * @return Copy of the parsed bytes that stays valid after the next parse
+     */
+    byte[] toByteArray() {
+        return Arrays.copyOf(buffer, length);
+    }
+
+    /**
+     * @return Character index of the first error, or -1 if the last parse succeeded
+     */
+    int getErrorIndex() {
+        return errorIndex;
+    }
+
+    /**
+     * @return Description of the last error including its position, or null
+     */
+    String getErrorMessage() {
+        if (errorMessage == null) {
+            return null;
+        }
+        return String.format(Locale.US, "%s at position %d", errorMessage, errorIndex + 1);
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.myapplication;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from int keys to long values with linear probing, so counting
+ * per key needs no boxing. Grows at half load. Not thread-safe.
+ */
+final class IntLongHashMap {
+    private int[] keys;
+    private long[] values;
+    private boolean[] used;
+    private int size;
+
+    IntLongHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new long[capacity];
+        used = new boolean[capacity];
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private int indexOf(int key) {
+        int mask = keys.length - 1;
+        int index = hash(key) & mask;
+        while (used[index] && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    /**
+     * @return Value for {@code key}, or 0 if absent
+     */
+    long get(int key) {
+        int index = indexOf(key);
+        return used[index] ? values[index] : 0;
+    }
+
+    boolean containsKey(int key) {
+        return used[indexOf(key)];
+    }
+
+    /**
+     * Adds {@code delta} to the value for {@code key}, starting from 0 if absent.
+     *
+     * @return The new value
+     */
+    long addTo(int key, long delta) {
+        int index = indexOf(key);
+        if (!used[index]) {
+            if ((size + 1) * 2 > keys.length) {
+                rehash(keys.length * 2);
+                index = indexOf(key);
+            }
+            used[index] = true;
+            keys[index] = key;
+            size++;
+        }
+        values[index] += delta;
+        return values[index];
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        Arrays.fill(used, false);
+        Arrays.fill(values, 0);
+        size = 0;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        long[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int index = indexOf(oldKeys[i]);
+                used[index] = true;
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.myapplication;
+
+/**
+ * Test hook deciding which received datagrams to discard as if the network had lost them,
+ * before the service looks at them. Called on a decode worker thread.
+ *
+ * @see MulticastService#setLossInjector(LossInjector)
+ */
+public interface LossInjector {
+    /**
+     * @return true to drop the datagram
+     */
+    boolean shouldDrop(byte[] data, int offset, int length);
+}
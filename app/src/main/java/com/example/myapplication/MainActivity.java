@@ -27,6 +27,7 @@ import androidx.core.view.WindowInsetsCompat;
 
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.List;
 import java.util.Locale;
 
 public class MainActivity extends AppCompatActivity implements MulticastService.MessageListener {
@@ -43,6 +44,7 @@ public class MainActivity extends AppCompatActivity implements MulticastService.
     private Switch hexModeSwitch;
 
     private boolean isHexMode = false;
+    private final HexParser hexParser = new HexParser();
     private SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm:ss", Locale.getDefault());
 
     @Override
@@ -197,12 +199,11 @@ public class MainActivity extends AppCompatActivity implements MulticastService.
 
         if (isHexMode) {
             // Validate hex format
-            if (!isValidHexString(message)) {
-                Toast.makeText(this, "Invalid hex format. Use space-separated hex bytes (e.g., '55 AA 02 6B DA')",
-                        Toast.LENGTH_LONG).show();
+            byte[] frame = parseHexFrame(message);
+            if (frame == null) {
                 return;
             }
-            multicastService.sendHexMessage(message);
+            multicastService.sendHexMessage(message, frame);
         } else {
             multicastService.sendMessage(message);
         }
@@ -221,53 +222,32 @@ public class MainActivity extends AppCompatActivity implements MulticastService.
     }
 
     /**
-     * Validates hex string format
-     * @param hexString The string to validate
-     * @return true if valid hex format, false otherwise
+     * Parses and validates a 55 AA frame typed as hex: header 55 AA, at least 7 bytes,
+     * and a last byte equal to the sum of the bytes between header and last byte
+     * @param hexString The string to validate, space-separated or compact hex
+     * @return the frame bytes, or null after telling the user what is wrong
      */
-    private boolean isValidHexString(String hexString) {
-        if (hexString == null || hexString.trim().isEmpty()) {
-            return false;
+    private byte[] parseHexFrame(String hexString) {
+        if (!hexParser.parse(hexString)) {
+            Toast.makeText(this, "Invalid hex format: " + hexParser.getErrorMessage() +
+                    ". Use hex bytes (e.g., '55 AA 02 6B DA')", Toast.LENGTH_LONG).show();
+            return null;
         }
 
-        // Check format: space-separated hex bytes
-        String[] hexBytes = hexString.trim().split("\\s+");
-        if (hexBytes.length < 7) {
+        int length = hexParser.getLength();
+        if (length < 7 || hexParser.get(0) != FrameBuilder.HEADER_0 || hexParser.get(1) != FrameBuilder.HEADER_1) {
             Toast.makeText(this, "数据不符合要求", Toast.LENGTH_SHORT).show();
-            return false;
+            return null;
         }
-        if ("55".equals(hexBytes[0]) && "AA".equals(hexBytes[1])) {
-            try {
-                String endHexByte = hexBytes[(hexBytes.length - 1)];
-                int endInt = Integer.parseInt(endHexByte, 16);
-                int startTotal = 0;
-                for (int i = 2; i < hexBytes.length - 1; i++) {
-                    startTotal += Integer.parseInt(hexBytes[i], 16);
-                }
-                if (endInt != startTotal) {
-                    Toast.makeText(this, "数据不符合要求", Toast.LENGTH_SHORT).show();
-                    return false;
-                }
-            } catch (NumberFormatException e) {
-                Toast.makeText(this, "数据不符合要求", Toast.LENGTH_SHORT).show();
-                return false;
-            }
-        }else {
-            Toast.makeText(this, "数据不符合要求", Toast.LENGTH_SHORT).show();
-            return false;
+        int total = 0;
+        for (int i = 2; i < length - 1; i++) {
+            total += hexParser.get(i);
         }
-        for (String hexByte : hexBytes) {
-            // Each hex byte should be 1-2 characters and valid hex
-            if (hexByte.length() < 1 || hexByte.length() > 2) {
-                return false;
-            }
-            try {
-                Integer.parseInt(hexByte, 16);
-            } catch (NumberFormatException e) {
-                return false;
-            }
+        if (total != hexParser.get(length - 1)) {
+            Toast.makeText(this, "数据不符合要求", Toast.LENGTH_SHORT).show();
+            return null;
         }
-        return true;
+        return hexParser.toByteArray();
     }
 
     private void updateUI(boolean isListening) {
@@ -285,6 +265,18 @@ public class MainActivity extends AppCompatActivity implements MulticastService.
         appendMessage(senderAddress, message);
     }
 
+    @Override
+    public void onMessagesReceived(List<ReceivedPacket> messages) {
+        // Append the whole frame's worth of packets at once so the TextView lays out once
+        String timestamp = timeFormat.format(new Date());
+        StringBuilder batch = new StringBuilder();
+        for (int i = 0; i < messages.size(); i++) {
+            ReceivedPacket packet = messages.get(i);
+            formatMessage(batch, timestamp, packet.getSenderAddress(), packet.getMessage());
+        }
+        appendText(batch);
+    }
+
     @Override
     public void onError(String error) {
         appendMessage("[Error]", error);
@@ -293,10 +285,19 @@ public class MainActivity extends AppCompatActivity implements MulticastService.
 
     private void appendMessage(String sender, String message) {
         String timestamp = timeFormat.format(new Date());
-        String formattedMessage = String.format("[%s] %s: %s\n",
-                timestamp, sender, message);
+        StringBuilder formattedMessage = new StringBuilder();
+        formatMessage(formattedMessage, timestamp, sender, message);
+        appendText(formattedMessage);
+    }
+
+    private void formatMessage(StringBuilder out, String timestamp, String sender, String message) {
+        out.append('[').append(timestamp).append("] ")
+                .append(sender).append(": ")
+                .append(message).append('\n');
+    }
 
-        receivedMessages.append(formattedMessage);
+    private void appendText(CharSequence text) {
+        receivedMessages.append(text);
 
         // Auto-scroll to bottom
         final int scrollAmount = receivedMessages.getLayout().getLineTop(receivedMessages.getLineCount())
@@ -0,0 +1,121 @@
+package com.example.myapplication;
+
+/**
+ * Several small application messages packed into one datagram:
+ * <pre>
+ * FE 'B' | length (2 bytes, big-endian) | message | length | message | ...
+ * </pre>
+ * The sender fills a bundle up to its MTU; the receiver recognises a datagram as a bundle
+ * only if it starts with the marker and its length fields account for every byte, and
+ * otherwise delivers it unchanged. Writer instances are not thread-safe.
+ */
+final class MessageBundle {
+    static final byte MARKER = (byte) 0xFE;
+    static final byte TYPE = 'B';
+    static final int HEADER_LENGTH = 2;
+    static final int ENTRY_OVERHEAD = 2;
+    private static final int MAX_ENTRY_LENGTH = 0xFFFF;
+
+    private final byte[] buffer;
+    private int length = HEADER_LENGTH;
+    private int count;
+
+    /**
+     * @param mtu Largest datagram the bundle may grow to
+     */
+    MessageBundle(int mtu) {
+        if (mtu <= HEADER_LENGTH + ENTRY_OVERHEAD) {
+            throw new IllegalArgumentException("MTU too small for a bundle: " + mtu);
+        }
+        buffer = new byte[mtu];
+        buffer[0] = MARKER;
+        buffer[1] = TYPE;
+    }
+
+    /**
+     * @return Largest message that can be bundled at all
+     */
+    int maxMessageLength() {
+        return Math.min(buffer.length - HEADER_LENGTH - ENTRY_OVERHEAD, MAX_ENTRY_LENGTH);
+    }
+
+    /**
+     * @return true if a message of {@code messageLength} bytes fits in the space left
+     */
+    boolean fits(int messageLength) {
+        return messageLength <= MAX_ENTRY_LENGTH && length + ENTRY_OVERHEAD + messageLength <= buffer.length;
+    }
+
+    /**
+     * @return true if not even an empty message would fit any more
+     */
+    boolean isFull() {
+        return length + ENTRY_OVERHEAD >= buffer.length;
+    }
+
+    void add(byte[] data, int offset, int messageLength) {
+        if (!fits(messageLength)) {
+            throw new IllegalArgumentException("Message does not fit in the bundle");
+        }
+        buffer[length] = (byte) (messageLength >>> 8);
+        buffer[length + 1] = (byte) messageLength;
+        System.arraycopy(data, offset, buffer, length + ENTRY_OVERHEAD, messageLength);
+        length += ENTRY_OVERHEAD + messageLength;
+        count++;
+    }
+
+    void clear() {
+        length = HEADER_LENGTH;
+        count = 0;
+    }
+
+    boolean isEmpty() {
+        return count == 0;
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    byte[] getBuffer() {
+        return buffer;
+    }
+
+    int getLength() {
+        return length;
+    }
+
+    private static boolean hasMarker(byte[] data, int offset, int length) {
+        return length >= HEADER_LENGTH && data[offset] == MARKER && data[offset + 1] == TYPE;
+    }
+
+    /**
+     * Checks whether a datagram is a well-formed bundle.
+     *
+     * @return Number of messages in the bundle, or -1 if it is not one
+     */
+    static int countMessages(byte[] data, int offset, int length) {
+        if (!hasMarker(data, offset, length)) {
+            return -1;
+        }
+        int end = offset + length;
+        int position = offset + HEADER_LENGTH;
+        int count = 0;
+        while (position < end) {
+            if (end - position < ENTRY_OVERHEAD) {
+                return -1;
+            }
+            int messageLength = readLength(data, position);
+            position += ENTRY_OVERHEAD + messageLength;
+            count++;
+        }
+        return position == end && count > 0 ? count : -1;
+    }
+
+    /**
+     * @return Length of the message whose entry starts at {@code position}
+     */
+    static int readLength(byte[] data, int position) {
+        return (data[position] & 0xFF) << 8 | (data[position + 1] & 0xFF);
+    }
+}
@@ -0,0 +1,327 @@
+package com.example.myapplication;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.MembershipKey;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Receives from any number of multicast (group, port, interface) memberships on a
+ * single non-blocking I/O thread.
+ * Each membership is a {@link Subscription} with its own {@link DatagramListener};
+ * listeners are called on the hub thread and must return quickly. Each ready membership
+ * gets at most {@value #MAX_READS_PER_SELECT} datagrams per pass of the selector, so a
+ * flooded group cannot starve the others.
+ * <p>
+ * The caller is responsible for holding a WifiManager.MulticastLock while
+ * subscriptions on a WiFi interface are open.
+ */
+public final class MulticastHub {
+    private static final String TAG = "MulticastHub";
+    private static final int MAX_CACHED_SENDERS = 256;
+    static final int MAX_READS_PER_SELECT = 64;
+
+    private final int bufferSize;
+    private final ConcurrentLinkedQueue<Subscription> pendingRegistrations = new ConcurrentLinkedQueue<>();
+    // Open subscriptions, for stop(); the selector's key set may only be used by the hub thread
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private final SenderAddressCache senderAddresses = new SenderAddressCache(MAX_CACHED_SENDERS);
+    // Orders subscribe() and the hub thread's registrations against stop()
+    private final Object registrationLock = new Object();
+
+    private volatile Selector selector;
+    private Thread ioThread;
+    private ByteBuffer directBuffer;
+    private byte[] scratch;
+
+    public interface DatagramListener {
+        /**
+         * Called on the hub thread for each datagram. {@code data} is reused for the next
+         * datagram, so copy anything that must outlive the call.
+         */
+        void onDatagram(Subscription subscription, byte[] data, int length, String senderAddress);
+
+        void onError(Subscription subscription, IOException error);
+    }
+
+    /**
+     * One group membership served by the hub.
+     */
+    public final class Subscription {
+        private final InetAddress group;
+        private final int port;
+        private final NetworkInterface networkInterface;
+        private final DatagramListener listener;
+        private final DatagramChannel channel;
+        private final MembershipKey membershipKey;
+        private volatile long packets;
+        private volatile long bytes;
+
+        private Subscription(InetAddress group, int port, NetworkInterface networkInterface,
+                             DatagramListener listener, DatagramChannel channel, MembershipKey membershipKey) {
+            this.group = group;
+            this.port = port;
+            this.networkInterface = networkInterface;
+            this.listener = listener;
+            this.channel = channel;
+            this.membershipKey = membershipKey;
+        }
+
+        public InetAddress getGroup() {
+            return group;
+        }
+
+        public int getPort() {
+            return port;
+        }
+
+        public NetworkInterface getNetworkInterface() {
+            return networkInterface;
+        }
+
+        public long getPacketCount() {
+            return packets;
+        }
+
+        public long getByteCount() {
+            return bytes;
+        }
+
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        /**
+         * Leaves the group and closes the underlying channel. Safe to call from any thread.
+         */
+        public void close() {
+            subscriptions.remove(this);
+            membershipKey.drop();
+            try {
+                // Closing also cancels the channel's selection key
+                channel.close();
+            } catch (IOException e) {
+                Log.w(TAG, "Error closing subscription " + this, e);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return group.getHostAddress() + ":" + port + " on " + networkInterface.getName();
+        }
+    }
+
+    public MulticastHub(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    public synchronized void start() throws IOException {
+        if (selector != null) {
+            Log.w(TAG, "Already started");
+            return;
+        }
+        directBuffer = ByteBuffer.allocateDirect(bufferSize);
+        scratch = new byte[bufferSize];
+        Selector newSelector = Selector.open();
+        selector = newSelector;
+        // Handed over directly: stop() may clear the field before the thread reads it
+        ioThread = new Thread(() -> runLoop(newSelector), "MulticastHub");
+        ioThread.start();
+    }
+
+    /**
+     * Closes every subscription and stops the hub thread.
+     */
+    public synchronized void stop() {
+        Selector current = selector;
+        if (current == null) {
+            return;
+        }
+        synchronized (registrationLock) {
+            selector = null;
+            for (Subscription subscription : subscriptions) {
+                subscription.close();
+            }
+            closePending();
+        }
+        // The hub thread closes the selector itself, as its key sets are not thread-safe
+        current.wakeup();
+        try {
+            ioThread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        ioThread = null;
+    }
+
+    /**
+     * Joins {@code group} on {@code networkInterface} and starts delivering its datagrams
+     * to {@code listener}. May be called from any thread while the hub is running.
+     */
+    public Subscription subscribe(InetAddress group, int port, NetworkInterface networkInterface,
+                                  DatagramListener listener) throws IOException {
+        if (selector == null) {
+            throw new IllegalStateException("Hub not started");
+        }
+
+        DatagramChannel channel = DatagramChannel.open(StandardProtocolFamily.INET);
+        try {
+            channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            bindToGroup(channel, group, port);
+            channel.configureBlocking(false);
+            MembershipKey key = channel.join(group, networkInterface);
+            Subscription subscription = new Subscription(group, port, networkInterface, listener, channel, key);
+
+            synchronized (registrationLock) {
+                // stop() may have run while the channel was being set up
+                Selector current = selector;
+                if (current == null) {
+                    subscription.close();
+                    throw new IllegalStateException("Hub stopped");
+                }
+                subscriptions.add(subscription);
+                // Channels can only be registered while the selector is not blocked in select()
+                pendingRegistrations.add(subscription);
+                current.wakeup();
+            }
+            Log.d(TAG, "Subscribed to " + subscription);
+            return subscription;
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Binds to the group address so that several subscriptions sharing a port only see
+     * their own group's traffic. Falls back to the wildcard address where the platform
+     * does not allow binding to a multicast address.
+     */
+    private static void bindToGroup(DatagramChannel channel, InetAddress group, int port) throws IOException {
+        try {
+            channel.bind(new InetSocketAddress(group, port));
+        } catch (IOException e) {
+            Log.w(TAG, "Cannot bind to " + group.getHostAddress() + ", using wildcard address");
+            channel.bind(new InetSocketAddress(port));
+        }
+    }
+
+    private void runLoop(Selector current) {
+        Log.d(TAG, "Hub thread started");
+        try {
+            while (selector == current) {
+                registerPending(current);
+                current.select();
+
+                Iterator<SelectionKey> keys = current.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    try {
+                        if (key.isValid() && key.isReadable()) {
+                            drain((Subscription) key.attachment());
+                        }
+                    } catch (CancelledKeyException e) {
+                        // The subscription was closed from another thread
+                    }
+                }
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Hub selector failed", e);
+        } finally {
+            try {
+                current.close();
+            } catch (IOException e) {
+                Log.w(TAG, "Error closing selector", e);
+            }
+        }
+        Log.d(TAG, "Hub thread stopped");
+    }
+
+    private void registerPending(Selector current) {
+        synchronized (registrationLock) {
+            if (selector != current) {
+                // Stopping; whatever stop() has not closed yet must not be registered
+                closePending();
+                return;
+            }
+            Subscription subscription;
+            while ((subscription = pendingRegistrations.poll()) != null) {
+                if (!subscription.isOpen()) {
+                    continue;
+                }
+                try {
+                    subscription.channel.register(current, SelectionKey.OP_READ, subscription);
+                } catch (IOException e) {
+                    notifyError(subscription, e);
+                    subscription.close();
+                }
+            }
+        }
+    }
+
+    private void closePending() {
+        Subscription pending;
+        while ((pending = pendingRegistrations.poll()) != null) {
+            pending.close();
+        }
+    }
+
+    /**
+     * Reads the datagrams queued on the subscription's channel, at most
+     * {@value #MAX_READS_PER_SELECT}; the selector reports the channel again if more remain.
+     */
+    private void drain(Subscription subscription) {
+        ByteBuffer buffer = directBuffer;
+        try {
+            for (int reads = 0; reads < MAX_READS_PER_SELECT; reads++) {
+                buffer.clear();
+                SocketAddress source = subscription.channel.receive(buffer);
+                if (source == null) {
+                    return;
+                }
+                buffer.flip();
+                int length = buffer.remaining();
+                buffer.get(scratch, 0, length);
+                subscription.packets++;
+                subscription.bytes += length;
+
+                String senderAddress = senderAddresses.lookup(((InetSocketAddress) source).getAddress());
+                try {
+                    subscription.listener.onDatagram(subscription, scratch, length, senderAddress);
+                } catch (RuntimeException e) {
+                    // A faulty listener must not take down the hub thread and every other group
+                    Log.w(TAG, "Listener of " + subscription + " failed", e);
+                }
+            }
+        } catch (IOException e) {
+            if (subscription.isOpen()) {
+                Log.e(TAG, "Error receiving on " + subscription, e);
+                notifyError(subscription, e);
+            }
+        }
+    }
+
+    private static void notifyError(Subscription subscription, IOException error) {
+        try {
+            subscription.listener.onError(subscription, error);
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Listener of " + subscription + " failed", e);
+        }
+    }
+}
@@ -0,0 +1,749 @@
+package com.example.myapplication;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.net.MulticastSocket;
+import java.net.NetworkInterface;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Long-lived send channel to one multicast group.
+ * <p>
+ * A single sender thread owns one {@link MulticastSocket} bound to the chosen interface,
+ * the resolved group address and a reusable {@link DatagramPacket}, so sending a message
+ * costs one queue hand-off and one system call instead of a new thread and socket.
+ * Messages are sent in the order they were queued, through a bounded {@link SendQueue},
+ * and optionally spaced out by a {@link SendPacer}.
+ * <p>
+ * Small payloads can optionally be coalesced into {@link MessageBundle}s of up to one MTU,
+ * held back at most a configured linger time.
+ * <p>
+ * The sender thread also drives a {@link TimerWheel} of {@link PeriodicBroadcast}s, so
+ * periodic beacons need neither their own threads nor a queue entry per broadcast.
+ * <p>
+ * For reliable delivery it keeps recent numbered datagrams in a {@link RetransmitBuffer},
+ * repeats those NACKed by receivers, and sends this node's own NACKs when its
+ * {@link NackScheduler} says they are due.
+ */
+final class MulticastSender {
+    private static final long WHEEL_TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    // 512 ticks of 10 ms: one revolution covers intervals up to about 5 s
+    private static final int WHEEL_SIZE = 512;
+    // Numbered heartbeats sent after the last datagram, 50, 100 and 200 ms apart, so
+    // receivers notice when the tail of a burst was lost
+    private static final int HEARTBEATS = 3;
+    private static final long HEARTBEAT_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final int RETRANSMIT_REQUESTS = 256;
+
+    /**
+     * A single payload waiting to be sent. Its future completes on the sender thread.
+     */
+    static final class SendRequest extends SendTask {
+        final byte[] data;
+        final int offset;
+        final int length;
+        final CompletableFuture<SendResult> future = new CompletableFuture<>();
+
+        SendRequest(byte[] data) {
+            this(data, 0, data.length);
+        }
+
+        SendRequest(byte[] data, int offset, int length) {
+            this.data = data;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        void execute(MulticastSender sender) {
+            if (sender.coalesce(this)) {
+                return;
+            }
+            try {
+                long sentAt = sender.transmitPayload(data, offset, length);
+                future.complete(new SendResult(length, enqueuedAtNanos, sentAt, sender.lastPacerWaitNanos));
+            } catch (IOException e) {
+                future.completeExceptionally(e);
+            }
+        }
+
+        @Override
+        void reject(Exception reason) {
+            future.completeExceptionally(reason);
+        }
+    }
+
+    /**
+     * Payloads sent back-to-back with a single queue entry and sender wake-up.
+     * A failed payload does not stop the rest of the batch.
+     */
+    static final class SendBatch extends SendTask {
+        final List<byte[]> payloads;
+        final CompletableFuture<BatchSendResult> future = new CompletableFuture<>();
+
+        SendBatch(List<byte[]> payloads) {
+            this.payloads = payloads;
+        }
+
+        @Override
+        void execute(MulticastSender sender) {
+            long firstStart = 0;
+            long lastSent = 0;
+            int sent = 0;
+            long bytes = 0;
+            IOException firstError = null;
+            for (int i = 0; i < payloads.size(); i++) {
+                byte[] payload = payloads.get(i);
+                long start = System.nanoTime();
+                if (i == 0) {
+                    firstStart = start;
+                }
+                try {
+                    lastSent = sender.transmitPayload(payload, 0, payload.length);
+                    sent++;
+                    bytes += payload.length;
+                } catch (IOException e) {
+                    lastSent = System.nanoTime();
+                    if (firstError == null) {
+                        firstError = e;
+                    }
+                }
+            }
+            future.complete(new BatchSendResult(payloads.size(), sent, bytes,
+                    enqueuedAtNanos, firstStart, lastSent, firstError));
+        }
+
+        @Override
+        void reject(Exception reason) {
+            future.completeExceptionally(reason);
+        }
+    }
+
+    /**
+     * A payload larger than one datagram, sent as back-to-back {@link FragmentCodec}
+     * fragments of at most {@code fragmentSize} bytes. Fragments are assembled one at a
+     * time in a buffer owned by the sender thread. The future fails on the first fragment
+     * the socket rejects, and the rest are not sent.
+     */
+    static final class FragmentedSend extends SendTask {
+        final byte[] data;
+        final int fragmentSize;
+        final CompletableFuture<SendResult> future = new CompletableFuture<>();
+
+        FragmentedSend(byte[] data, int fragmentSize) {
+            if (FragmentCodec.fragmentCount(data.length, fragmentSize) > FragmentCodec.MAX_FRAGMENTS) {
+                throw new IllegalArgumentException("Payload needs more than "
+                        + FragmentCodec.MAX_FRAGMENTS + " fragments");
+            }
+            this.data = data;
+            this.fragmentSize = fragmentSize;
+        }
+
+        @Override
+        void execute(MulticastSender sender) {
+            byte[] buffer = sender.fragmentBuffer(fragmentSize);
+            int chunk = fragmentSize - FragmentCodec.HEADER_LENGTH;
+            int count = FragmentCodec.fragmentCount(data.length, fragmentSize);
+            int messageId = sender.nextMessageId++;
+            long sentAt = 0;
+            long pacerWait = 0;
+            try {
+                for (int index = 0; index < count; index++) {
+                    int position = index * chunk;
+                    int length = Math.min(chunk, data.length - position);
+                    FragmentCodec.writeHeader(buffer, messageId, index, count, data.length);
+                    System.arraycopy(data, position, buffer, FragmentCodec.HEADER_LENGTH, length);
+                    sentAt = sender.transmit(buffer, 0, FragmentCodec.HEADER_LENGTH + length);
+                    pacerWait += sender.lastPacerWaitNanos;
+                }
+                future.complete(new SendResult(data.length, enqueuedAtNanos, sentAt, pacerWait));
+            } catch (IOException e) {
+                future.completeExceptionally(e);
+            }
+        }
+
+        @Override
+        void reject(Exception reason) {
+            future.completeExceptionally(reason);
+        }
+    }
+
+    private final InetAddress group;
+    private final int port;
+    private final NetworkInterface networkInterface;
+    private final SendQueue queue;
+    private final SendPacer pacer;
+    private final SendStats stats = new SendStats();
+    private final ConcurrentLinkedQueue<PeriodicBroadcast> addedBroadcasts = new ConcurrentLinkedQueue<>();
+    private final Consumer<PeriodicBroadcast> broadcastTrigger = this::fireBroadcast;
+
+    private TimerWheel<PeriodicBroadcast> broadcastWheel;
+    private MulticastSocket socket;
+    private DatagramPacket datagram;
+    private Thread senderThread;
+    private volatile boolean running;
+
+    // Pacer wait of the last transmit; only touched on the sender thread
+    long lastPacerWaitNanos;
+
+    // Fragmentation state, only touched on the sender thread
+    private byte[] fragmentBuffer;
+    // Escaping state, only written on the sender thread once started
+    private boolean payloadEscaping;
+    private byte[] escapeBuffer;
+    int nextMessageId = ThreadLocalRandom.current().nextInt();
+
+    // Sequence numbering state, only written on the sender thread once started
+    private boolean sequencing;
+    private int senderId;
+    private volatile int nextSequence;
+    private byte[] sequenceBuffer;
+
+    // Reliable delivery state, only touched on the sender thread except the request ring
+    private RetransmitBuffer retransmitBuffer;
+    private NackScheduler nackScheduler;
+    private byte[] nackBuffer;
+    private int heartbeatsLeft;
+    private long nextHeartbeatAt;
+    private final long[] retransmitRequests = new long[RETRANSMIT_REQUESTS];
+    private int retransmitRequestHead;
+    private int retransmitRequestCount;
+    private volatile long droppedRetransmitRequests;
+
+    // Coalescing state, only touched on the sender thread once started
+    private MessageBundle bundle;
+    private long maxLingerNanos;
+    private long bundleStartedAt;
+    private final ArrayList<SendRequest> bundledRequests = new ArrayList<>();
+    private volatile long coalescedMessages;
+    private volatile long bundlesSent;
+
+    /**
+     * @param networkInterface Interface to send on, or null for the system default
+     * @param queue Queue of pending sends; owned and closed by this sender
+     * @param pacer Rate limiter shared with other senders, or null to send unpaced
+     */
+    MulticastSender(InetAddress group, int port, NetworkInterface networkInterface, SendQueue queue,
+                    SendPacer pacer) {
+        this.group = group;
+        this.port = port;
+        this.networkInterface = networkInterface;
+        this.queue = queue;
+        this.pacer = pacer;
+    }
+
+    InetAddress getGroup() {
+        return group;
+    }
+
+    int getPort() {
+        return port;
+    }
+
+    NetworkInterface getNetworkInterface() {
+        return networkInterface;
+    }
+
+    SendStats getStats() {
+        return stats;
+    }
+
+    SendQueue getQueue() {
+        return queue;
+    }
+
+    /**
+     * Packs queued payloads that fit into datagrams of up to {@code mtu} bytes, sending a
+     * partly filled bundle at most {@code maxLingerMillis} after its first payload was added.
+     * Must be called before {@link #start()}.
+     */
+    synchronized void enableCoalescing(int mtu, long maxLingerMillis) {
+        if (running) {
+            throw new IllegalStateException("Sender already started");
+        }
+        bundle = new MessageBundle(mtu);
+        maxLingerNanos = TimeUnit.MILLISECONDS.toNanos(maxLingerMillis);
+    }
+
+    /**
+     * Escapes application payloads sent on their own that start with FE, so receivers
+     * looking for the service's own FE datagrams do not take them for one. Needed whenever
+     * sequencing, coalescing or fragmentation is on; otherwise payloads go out unchanged.
+     * Must be called before {@link #start()}.
+     */
+    synchronized void enablePayloadEscaping() {
+        if (running) {
+            throw new IllegalStateException("Sender already started");
+        }
+        payloadEscaping = true;
+    }
+
+    boolean isPayloadEscaping() {
+        return payloadEscaping;
+    }
+
+    /**
+     * Prefixes every datagram with a {@link SequenceCodec} header carrying {@code senderId}
+     * and a sequence number counting up from {@code firstSequence}.
+     * Must be called before {@link #start()}.
+     */
+    synchronized void enableSequencing(int senderId, int firstSequence) {
+        if (running) {
+            throw new IllegalStateException("Sender already started");
+        }
+        sequencing = true;
+        this.senderId = senderId;
+        nextSequence = firstSequence;
+    }
+
+    /**
+     * Keeps sent datagrams in {@code buffer} for repeats requested through
+     * {@link #requestRetransmit}, and sends the NACKs {@code scheduler} asks for.
+     * Requires {@link #enableSequencing}; must be called before {@link #start()}.
+     */
+    synchronized void enableReliableDelivery(RetransmitBuffer buffer, NackScheduler scheduler) {
+        if (running) {
+            throw new IllegalStateException("Sender already started");
+        }
+        if (!sequencing) {
+            throw new IllegalStateException("Reliable delivery needs sequence numbering");
+        }
+        retransmitBuffer = buffer;
+        nackScheduler = scheduler;
+        nackBuffer = new byte[NackCodec.MAX_LENGTH];
+    }
+
+    RetransmitBuffer getRetransmitBuffer() {
+        return retransmitBuffer;
+    }
+
+    /**
+     * Asks the sender thread to repeat {@code run} datagrams starting at
+     * {@code firstSequence}, if it still has them. May be called from any thread.
+     */
+    void requestRetransmit(int firstSequence, int run) {
+        synchronized (retransmitRequests) {
+            if (retransmitRequestCount == RETRANSMIT_REQUESTS) {
+                droppedRetransmitRequests++;
+                return;
+            }
+            int tail = (retransmitRequestHead + retransmitRequestCount++) % RETRANSMIT_REQUESTS;
+            retransmitRequests[tail] = (long) firstSequence << 32 | run;
+        }
+        queue.wakeUp();
+    }
+
+    /**
+     * @return Retransmit requests dropped because too many were waiting
+     */
+    long getDroppedRetransmitRequestCount() {
+        return droppedRetransmitRequests;
+    }
+
+    /**
+     * Makes the sender thread look for due work now, e.g. after a NACK was scheduled.
+     */
+    void wakeUp() {
+        queue.wakeUp();
+    }
+
+    boolean isSequencing() {
+        return sequencing;
+    }
+
+    /**
+     * @return Sequence number the next datagram will carry, so a replacement sender can
+     * continue the stream
+     */
+    int getNextSequence() {
+        return nextSequence;
+    }
+
+    boolean isCoalescing() {
+        return bundle != null;
+    }
+
+    /**
+     * @return Payloads sent inside bundles rather than as datagrams of their own
+     */
+    long getCoalescedMessageCount() {
+        return coalescedMessages;
+    }
+
+    /**
+     * @return Datagrams sent that carried more than one payload
+     */
+    long getBundleCount() {
+        return bundlesSent;
+    }
+
+    synchronized void start() throws IOException {
+        if (running) {
+            return;
+        }
+        MulticastSocket newSocket = new MulticastSocket();
+        try {
+            if (networkInterface != null) {
+                newSocket.setNetworkInterface(networkInterface);
+            }
+        } catch (IOException e) {
+            newSocket.close();
+            throw e;
+        }
+        socket = newSocket;
+        datagram = new DatagramPacket(new byte[0], 0, group, port);
+        broadcastWheel = new TimerWheel<>(WHEEL_TICK_NANOS, WHEEL_SIZE, System.nanoTime());
+        running = true;
+        senderThread = new Thread(this::runLoop, "MulticastSender");
+        senderThread.start();
+    }
+
+    /**
+     * Stops the sender thread and closes the socket. Queued sends are rejected.
+     */
+    synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        queue.close();
+        // Wake the thread if it is waiting in the pacer
+        LockSupport.unpark(senderThread);
+        try {
+            senderThread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        senderThread = null;
+        socket.close();
+        socket = null;
+    }
+
+    boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Queues a payload for sending. May be called from any thread; may block under
+     * {@link OverflowPolicy#BLOCK}.
+     *
+     * @return Future completed with the send result, or exceptionally if the payload was
+     * rejected by the queue or the socket
+     */
+    CompletableFuture<SendResult> send(SendRequest request) {
+        queue.offer(request);
+        return request.future;
+    }
+
+    /**
+     * Queues a batch of payloads as a single queue entry.
+     *
+     * @return Future completed once every payload was attempted, or exceptionally if the
+     * queue rejected the batch
+     */
+    CompletableFuture<BatchSendResult> send(SendBatch batch) {
+        queue.offer(batch);
+        return batch.future;
+    }
+
+    /**
+     * Queues a payload to be sent as fragments.
+     *
+     * @return Future completed once the last fragment was sent
+     */
+    CompletableFuture<SendResult> send(FragmentedSend fragmented) {
+        queue.offer(fragmented);
+        return fragmented.future;
+    }
+
+    private byte[] fragmentBuffer(int size) {
+        if (fragmentBuffer == null || fragmentBuffer.length != size) {
+            fragmentBuffer = new byte[size];
+        }
+        return fragmentBuffer;
+    }
+
+    /**
+     * Starts firing a periodic broadcast on the sender thread. May be called from any thread.
+     * Cancelled broadcasts are dropped the next time they come due.
+     */
+    void schedule(PeriodicBroadcast broadcast) {
+        addedBroadcasts.add(broadcast);
+        queue.wakeUp();
+    }
+
+    private void runLoop() {
+        TimerWheel<PeriodicBroadcast> wheel = broadcastWheel;
+        while (running) {
+            long now = System.nanoTime();
+            PeriodicBroadcast added;
+            while ((added = addedBroadcasts.poll()) != null) {
+                wheel.schedule(added, added.firstDeadline(now));
+            }
+            wheel.advance(now, broadcastTrigger);
+
+            long timeout = wheel.isEmpty() ? Long.MAX_VALUE : wheel.nanosUntilNextTick(System.nanoTime());
+            if (bundle != null && !bundle.isEmpty()) {
+                long lingerLeft = bundleStartedAt + maxLingerNanos - System.nanoTime();
+                if (lingerLeft <= 0) {
+                    flushBundle();
+                } else {
+                    timeout = Math.min(timeout, lingerLeft);
+                }
+            }
+            if (nackScheduler != null) {
+                timeout = Math.min(timeout, serviceReliableDelivery());
+            }
+            SendTask task;
+            try {
+                task = queue.poll(timeout);
+            } catch (InterruptedException e) {
+                break;
+            }
+            if (task != null) {
+                task.execute(this);
+            }
+        }
+        // Send whatever is still bundled rather than leaving its futures incomplete
+        flushBundle();
+    }
+
+    /**
+     * Adds a request to the current bundle if coalescing is on and the payload is small
+     * enough, sending the bundle first if the payload does not fit in it.
+     *
+     * @return false if the request must be sent on its own
+     */
+    private boolean coalesce(SendRequest request) {
+        if (bundle == null || request.length > bundle.maxMessageLength()) {
+            return false;
+        }
+        if (!bundle.fits(request.length)) {
+            flushBundle();
+        }
+        if (bundle.isEmpty()) {
+            bundleStartedAt = System.nanoTime();
+        }
+        bundle.add(request.data, request.offset, request.length);
+        bundledRequests.add(request);
+        if (bundle.isFull()) {
+            flushBundle();
+        }
+        return true;
+    }
+
+    /**
+     * Sends the pending bundle and completes the futures of the payloads in it. A bundle
+     * holding one payload is sent as that payload alone.
+     */
+    private void flushBundle() {
+        if (bundle == null || bundle.isEmpty()) {
+            return;
+        }
+        try {
+            long sentAt;
+            SendRequest first = bundledRequests.get(0);
+            if (bundle.getCount() == 1) {
+                sentAt = sendPayload(first.data, first.offset, first.length);
+            } else {
+                sentAt = sendDatagram(bundle.getBuffer(), 0, bundle.getLength());
+                coalescedMessages += bundle.getCount();
+                bundlesSent++;
+            }
+            for (int i = 0; i < bundledRequests.size(); i++) {
+                SendRequest request = bundledRequests.get(i);
+                request.future.complete(new SendResult(request.length, request.enqueuedAtNanos, sentAt,
+                        lastPacerWaitNanos));
+            }
+        } catch (IOException e) {
+            for (int i = 0; i < bundledRequests.size(); i++) {
+                bundledRequests.get(i).future.completeExceptionally(e);
+            }
+        } finally {
+            bundledRequests.clear();
+            bundle.clear();
+        }
+    }
+
+    private void fireBroadcast(PeriodicBroadcast broadcast) {
+        if (broadcast.isCancelled()) {
+            return;
+        }
+        try {
+            byte[] payload = broadcast.getPayloadSupplier().get();
+            if (payload != null) {
+                transmitPayload(payload, 0, payload.length);
+                broadcast.recordSent();
+            }
+        } catch (IOException | RuntimeException e) {
+            broadcast.recordFailure();
+        }
+        if (running && !broadcast.isCancelled()) {
+            broadcastWheel.schedule(broadcast, broadcast.nextDeadline(System.nanoTime()));
+        }
+    }
+
+    /**
+     * Repeats requested datagrams, sends due NACKs and heartbeats.
+     *
+     * @return Time until this needs to run again
+     */
+    private long serviceReliableDelivery() {
+        long now = System.nanoTime();
+        while (true) {
+            long request;
+            synchronized (retransmitRequests) {
+                if (retransmitRequestCount == 0) {
+                    break;
+                }
+                request = retransmitRequests[retransmitRequestHead];
+                retransmitRequestHead = (retransmitRequestHead + 1) % RETRANSMIT_REQUESTS;
+                retransmitRequestCount--;
+            }
+            int first = (int) (request >>> 32);
+            int run = (int) request;
+            for (int i = 0; i < run && running; i++) {
+                int slot = retransmitBuffer.claim(first + i, now);
+                if (slot >= 0) {
+                    sendQuietly(retransmitBuffer.data(slot), retransmitBuffer.length(slot));
+                }
+            }
+        }
+
+        int length;
+        while (running && (length = nackScheduler.poll(now, senderId, nackBuffer)) > 0) {
+            sendQuietly(nackBuffer, length);
+        }
+
+        long wait = nackScheduler.nanosUntilNextDeadline(now);
+        if (heartbeatsLeft > 0) {
+            if (now - nextHeartbeatAt >= 0) {
+                try {
+                    transmit(SequenceCodec.HEARTBEAT, 0, SequenceCodec.HEARTBEAT.length);
+                } catch (IOException e) {
+                    // Counted in the send stats; the next heartbeat may get through
+                }
+                heartbeatsLeft--;
+                nextHeartbeatAt = now + (HEARTBEAT_NANOS << (HEARTBEATS - heartbeatsLeft));
+            }
+            if (heartbeatsLeft > 0) {
+                wait = Math.min(wait, Math.max(0, nextHeartbeatAt - now));
+            }
+        }
+        return wait;
+    }
+
+    /**
+     * Sends a repeat or a NACK as is, unnumbered. Failures only show in the send stats;
+     * the receiver asks again.
+     */
+    private void sendQuietly(byte[] data, int length) {
+        try {
+            sendRaw(data, 0, length);
+        } catch (IOException e) {
+            // Counted by sendRaw
+        }
+    }
+
+    /**
+     * Sends one datagram on the sender thread, after any payloads still waiting in a bundle
+     * so that send order is kept.
+     *
+     * @return {@link System#nanoTime()} at which the socket accepted the datagram
+     */
+    long transmit(byte[] data, int offset, int length) throws IOException {
+        flushBundle();
+        return sendDatagram(data, offset, length);
+    }
+
+    /**
+     * Sends an application payload as one datagram, like {@link #transmit}. With payload
+     * escaping on, it is escaped with {@link PayloadEscape} if it could be taken for a
+     * bundle, fragment, NACK or other datagram of the service's own.
+     */
+    long transmitPayload(byte[] data, int offset, int length) throws IOException {
+        flushBundle();
+        return sendPayload(data, offset, length);
+    }
+
+    private long sendPayload(byte[] data, int offset, int length) throws IOException {
+        if (!payloadEscaping || !PayloadEscape.needsEscape(data, offset, length)) {
+            return sendDatagram(data, offset, length);
+        }
+        int escaped = PayloadEscape.HEADER_LENGTH + length;
+        if (escapeBuffer == null || escapeBuffer.length < escaped) {
+            escapeBuffer = new byte[escaped];
+        }
+        return sendDatagram(escapeBuffer, 0, PayloadEscape.escape(data, offset, length, escapeBuffer));
+    }
+
+    /**
+     * Sends one datagram, numbered if sequencing is on.
+     */
+    private long sendDatagram(byte[] data, int offset, int length) throws IOException {
+        if (!sequencing) {
+            return sendRaw(data, offset, length);
+        }
+        int sequenced = SequenceCodec.HEADER_LENGTH + length;
+        if (sequenceBuffer == null || sequenceBuffer.length < sequenced) {
+            sequenceBuffer = new byte[Math.max(sequenced, 2048)];
+        }
+        int sequence = nextSequence++;
+        SequenceCodec.writeHeader(sequenceBuffer, senderId, sequence);
+        System.arraycopy(data, offset, sequenceBuffer, SequenceCodec.HEADER_LENGTH, length);
+        if (retransmitBuffer != null) {
+            retransmitBuffer.store(sequence, sequenceBuffer, 0, sequenced);
+            if (data != SequenceCodec.HEARTBEAT) {
+                heartbeatsLeft = HEARTBEATS;
+                nextHeartbeatAt = System.nanoTime() + HEARTBEAT_NANOS;
+            }
+        }
+        return sendRaw(sequenceBuffer, 0, sequenced);
+    }
+
+    /**
+     * Sends one datagram as is, first waiting for the pacer if one is set.
+     * The wait is left in {@link #lastPacerWaitNanos}.
+     */
+    private long sendRaw(byte[] data, int offset, int length) throws IOException {
+        lastPacerWaitNanos = pacer != null ? pace(length) : 0;
+        try {
+            datagram.setData(data, offset, length);
+            long start = System.nanoTime();
+            socket.send(datagram);
+            long sentAt = System.nanoTime();
+            stats.recordSent(length, sentAt - start);
+            return sentAt;
+        } catch (IOException e) {
+            stats.recordFailure();
+            throw e;
+        }
+    }
+
+    private long pace(int length) throws InterruptedIOException {
+        long now = System.nanoTime();
+        long wait = pacer.reserve(group, length, now);
+        if (wait <= 0) {
+            return 0;
+        }
+        long deadline = now + wait;
+        while (running) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return wait;
+            }
+            LockSupport.parkNanos(this, remaining);
+        }
+        stats.recordFailure();
+        throw new InterruptedIOException("Sender stopped while pacing");
+    }
+}
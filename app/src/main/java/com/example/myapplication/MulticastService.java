@@ -5,25 +5,53 @@ import android.net.wifi.WifiManager;
 import android.os.Handler;
 import android.os.HandlerThread;
 import android.util.Log;
+import android.view.Choreographer;
 
 import java.io.IOException;
-import java.net.DatagramPacket;
 import java.net.InetAddress;
-import java.net.InetSocketAddress;
-import java.net.MulticastSocket;
 import java.net.NetworkInterface;
-import java.net.SocketAddress;
 import java.net.SocketException;
-import java.nio.charset.StandardCharsets;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 public class MulticastService {
     private static final String TAG = "MulticastService";
     private static final String MULTICAST_GROUP = "239.0.0.1";
 //    private static final int MULTICAST_PORT = 3003;
-    private static final int BUFFER_SIZE = 1024;
+    private static final int DEFAULT_MAX_DATAGRAM_SIZE = 1024;
+    // Largest UDP payload that fits in an IPv4 datagram
+    private static final int MAX_DATAGRAM_SIZE_LIMIT = 65507;
+    // Upper bound on memory kept in idle pooled packets
+    private static final int MAX_POOLED_BYTES = 8 * 1024 * 1024;
+    private static final int DEFAULT_RECEIVE_QUEUE_CAPACITY = 256;
+    private static final int DEFAULT_DECODE_WORKERS = 1;
+    private static final int DEFAULT_SEND_QUEUE_CAPACITY = 256;
+    private static final long DEFAULT_SEND_BLOCK_TIMEOUT_MS = 100;
+    // One idle builder per slot of a default-sized send queue
+    private static final int MAX_POOLED_FRAMES = DEFAULT_SEND_QUEUE_CAPACITY;
+    private static final int DEFAULT_REASSEMBLY_SLOTS = 4;
+    private static final int DEFAULT_MAX_REASSEMBLED_SIZE = 256 * 1024;
+    private static final long DEFAULT_REASSEMBLY_TIMEOUT_MS = 5000;
+    private static final int MAX_DUPLICATE_WINDOW = 65536;
+    private static final int DEFAULT_RETRANSMIT_BUFFER = 512;
+    private static final int MAX_PENDING_NACKS = 1024;
+    private static final long NACK_MIN_DELAY_MS = 5;
+    private static final long NACK_MAX_DELAY_MS = 30;
+    private static final long NACK_RETRY_MS = 100;
+    private static final int NACK_MAX_ATTEMPTS = 16;
+    // Shorter than the NACK retry, so only requests for the same loss are merged
+    private static final long RETRANSMIT_SUPPRESS_MS = 30;
 
     private int multicastPort;
 
@@ -35,8 +63,463 @@ public class MulticastService {
         this.multicastPort = multicastPort;
     }
 
+    private int maxDatagramSize = DEFAULT_MAX_DATAGRAM_SIZE;
+    private int receiveBufferSize = 0;
+    private int receiveQueueCapacity = DEFAULT_RECEIVE_QUEUE_CAPACITY;
+    private int decodeWorkerCount = DEFAULT_DECODE_WORKERS;
+
+    public int getMaxDatagramSize() {
+        return maxDatagramSize;
+    }
+
+    /**
+     * Sets the largest datagram that is received intact; longer datagrams are truncated
+     * and counted. Takes effect the next time {@link #startListening()} is called.
+     *
+     * @param maxDatagramSize Size in bytes, 1 to 65507
+     */
+    public void setMaxDatagramSize(int maxDatagramSize) {
+        if (maxDatagramSize <= 0 || maxDatagramSize > MAX_DATAGRAM_SIZE_LIMIT) {
+            throw new IllegalArgumentException("Datagram size must be 1.." + MAX_DATAGRAM_SIZE_LIMIT);
+        }
+        this.maxDatagramSize = maxDatagramSize;
+    }
+
+    public int getReceiveBufferSize() {
+        return receiveBufferSize;
+    }
+
+    /**
+     * Requests a kernel receive buffer (SO_RCVBUF) large enough to absorb bursts.
+     * The kernel may grant a different size; see {@link #getEffectiveReceiveBufferSize()}.
+     * Takes effect the next time {@link #startListening()} is called.
+     *
+     * @param receiveBufferSize Size in bytes, or 0 to keep the OS default
+     */
+    public void setReceiveBufferSize(int receiveBufferSize) {
+        if (receiveBufferSize < 0) {
+            throw new IllegalArgumentException("Buffer size must not be negative");
+        }
+        this.receiveBufferSize = receiveBufferSize;
+    }
+
+    /**
+     * @return SO_RCVBUF granted by the kernel, or 0 when not listening
+     */
+    public int getEffectiveReceiveBufferSize() {
+        ReceiveEngine engine = receiveEngine;
+        return engine != null ? engine.getEffectiveReceiveBufferSize() : 0;
+    }
+
+    /**
+     * @return Number of datagrams cut short since listening started
+     */
+    public long getTruncatedPacketCount() {
+        ReceiveEngine engine = receiveEngine;
+        return engine != null ? engine.getStats().getTruncated() : 0;
+    }
+    private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_OLDEST;
+
+    public int getReceiveQueueCapacity() {
+        return receiveQueueCapacity;
+    }
+
+    /**
+     * Sets how many received packets may wait for delivery to the listener.
+     * Takes effect the next time {@link #startListening()} is called.
+     */
+    public void setReceiveQueueCapacity(int receiveQueueCapacity) {
+        if (receiveQueueCapacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.receiveQueueCapacity = receiveQueueCapacity;
+    }
+
+    public int getDecodeWorkerCount() {
+        return decodeWorkerCount;
+    }
+
+    /**
+     * Sets how many worker threads process received packets between the receiver thread
+     * and delivery. Packets from one sender always go to the same worker, so their order
+     * is preserved. With 0 workers packets are processed on the receiver thread.
+     * Takes effect the next time {@link #startListening()} is called.
+     */
+    public void setDecodeWorkerCount(int decodeWorkerCount) {
+        if (decodeWorkerCount < 0) {
+            throw new IllegalArgumentException("Worker count must not be negative");
+        }
+        this.decodeWorkerCount = decodeWorkerCount;
+    }
+
+    private int sendQueueCapacity = DEFAULT_SEND_QUEUE_CAPACITY;
+    private OverflowPolicy sendOverflowPolicy = OverflowPolicy.DROP_NEWEST;
+    private long sendBlockTimeoutMillis = DEFAULT_SEND_BLOCK_TIMEOUT_MS;
+
+    public int getSendQueueCapacity() {
+        return sendQueueCapacity;
+    }
+
+    /**
+     * Sets how many messages may wait for the sender thread.
+     * Takes effect when the sender is next (re)created, e.g. after {@link #startListening()}.
+     */
+    public void setSendQueueCapacity(int sendQueueCapacity) {
+        if (sendQueueCapacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.sendQueueCapacity = sendQueueCapacity;
+    }
+
+    public OverflowPolicy getSendOverflowPolicy() {
+        return sendOverflowPolicy;
+    }
+
+    /**
+     * Sets what a send does when the send queue is full: {@link OverflowPolicy#DROP_NEWEST}
+     * rejects it, {@link OverflowPolicy#DROP_OLDEST} rejects the oldest queued message instead,
+     * and {@link OverflowPolicy#BLOCK} waits up to {@link #setSendBlockTimeoutMillis} for space.
+     * Avoid BLOCK when sending from the main thread.
+     * Takes effect when the sender is next (re)created.
+     */
+    public void setSendOverflowPolicy(OverflowPolicy sendOverflowPolicy) {
+        this.sendOverflowPolicy = sendOverflowPolicy;
+    }
+
+    public long getSendBlockTimeoutMillis() {
+        return sendBlockTimeoutMillis;
+    }
+
+    public void setSendBlockTimeoutMillis(long sendBlockTimeoutMillis) {
+        if (sendBlockTimeoutMillis < 0) {
+            throw new IllegalArgumentException("Timeout must not be negative");
+        }
+        this.sendBlockTimeoutMillis = sendBlockTimeoutMillis;
+    }
+
+    /**
+     * Selects the integrity check written at the end of frames built with {@link #newFrame}
+     * and expected on received frames. Every node of a deployment must use the same one;
+     * the default is {@link FrameChecksum#SUM8}.
+     */
+    public void setFrameChecksum(FrameChecksum frameChecksum) {
+        if (frameChecksum == null) {
+            throw new IllegalArgumentException("Checksum must not be null");
+        }
+        datagramProcessor.getFrameDecoder().setChecksum(frameChecksum);
+    }
+
+    public FrameChecksum getFrameChecksum() {
+        return datagramProcessor.getFrameDecoder().getChecksum();
+    }
+
+    /**
+     * Returns the dispatcher that receives decoded frames by default. Register a handler per
+     * opcode on it; handlers run on a decode worker thread.
+     */
+    public OpcodeDispatcher getFrameDispatcher() {
+        return frameDispatcher;
+    }
+
+    /**
+     * Sets the listener for 55 AA frames found in received datagrams, replacing the
+     * {@link #getFrameDispatcher() dispatcher}. It is called on a decode worker thread,
+     * before the datagram itself reaches the {@link MessageListener}.
+     * Frames are validated and counted whether or not a listener is set.
+     */
+    public void setFrameListener(FrameListener frameListener) {
+        datagramProcessor.setFrameListener(frameListener);
+    }
+
+    /**
+     * @return Frames from {@code sender} dropped because their checksum did not match
+     */
+    public long getFrameChecksumFailures(InetAddress sender) {
+        return datagramProcessor.getFrameDecoder().getChecksumFailures(sender);
+    }
+
+    private int fragmentSize;
+
+    /**
+     * @return Fragment size, or 0 if fragmentation is off
+     */
+    public int getFragmentSize() {
+        return fragmentSize;
+    }
+
+    /**
+     * Turns on fragmentation for payloads too large for one datagram: payloads passed to
+     * {@link #sendAsync} above this size are split into fragments of this size and
+     * reassembled by receivers, which need it turned on too. Only this app can read
+     * fragments, so keep it off (0, the default) when plain receivers such as ATAK listen,
+     * and keep it within the receivers' max datagram size.
+     */
+    public void setFragmentSize(int fragmentSize) {
+        if (fragmentSize != 0 && (fragmentSize <= FragmentCodec.HEADER_LENGTH || fragmentSize > MAX_DATAGRAM_SIZE_LIMIT)) {
+            throw new IllegalArgumentException("Fragment size must be 0 or between " +
+                    (FragmentCodec.HEADER_LENGTH + 1) + " and " + MAX_DATAGRAM_SIZE_LIMIT);
+        }
+        this.fragmentSize = fragmentSize;
+        if (isListening && (fragmentSize > 0) != (datagramProcessor.getReassembler() != null)) {
+            datagramProcessor.setReassembler(newReassembler());
+        }
+    }
+
+    /**
+     * @return A reassembler sized by {@link #setReassembly}, or null if fragmentation is off
+     */
+    private Reassembler newReassembler() {
+        return fragmentSize > 0 ? new Reassembler(reassemblySlots, maxReassembledSize,
+                TimeUnit.MILLISECONDS.toNanos(reassemblyTimeoutMillis)) : null;
+    }
+
+    private int reassemblySlots = DEFAULT_REASSEMBLY_SLOTS;
+    private int maxReassembledSize = DEFAULT_MAX_REASSEMBLED_SIZE;
+    private long reassemblyTimeoutMillis = DEFAULT_REASSEMBLY_TIMEOUT_MS;
+
+    /**
+     * Sizes the memory used to reassemble fragmented messages: {@code slots} messages of up
+     * to {@code maxMessageSize} bytes each are preallocated, so at most
+     * slots x maxMessageSize bytes are ever used. A partial message is dropped after
+     * {@code timeoutMillis} without a new fragment.
+     * Takes effect the next time {@link #startListening()} is called.
+     */
+    public void setReassembly(int slots, int maxMessageSize, long timeoutMillis) {
+        if (slots <= 0 || maxMessageSize <= 0 || timeoutMillis <= 0) {
+            throw new IllegalArgumentException("Reassembly parameters must be positive");
+        }
+        this.reassemblySlots = slots;
+        this.maxReassembledSize = maxMessageSize;
+        this.reassemblyTimeoutMillis = timeoutMillis;
+    }
+
+    private int sendCoalescingMtu;
+    private long sendCoalescingLingerMillis;
+
+    /**
+     * Packs small messages into shared datagrams of up to {@code mtu} bytes to save
+     * per-packet overhead and airtime. A partly filled datagram is sent at most
+     * {@code maxLingerMillis} after its first message was queued. Receivers split the
+     * datagrams back into individual messages only if they have coalescing on too, so
+     * enable it on every node. Keep the MTU within the receivers'
+     * {@link #setMaxDatagramSize max datagram size}; pass 0 as MTU to turn coalescing off.
+     * Takes effect for sending when the sender is next (re)created.
+     */
+    public void setSendCoalescing(int mtu, long maxLingerMillis) {
+        if (mtu != 0 && (mtu <= MessageBundle.HEADER_LENGTH + MessageBundle.ENTRY_OVERHEAD
+                || mtu > MAX_DATAGRAM_SIZE_LIMIT)) {
+            throw new IllegalArgumentException("MTU must be 0 or between " +
+                    (MessageBundle.HEADER_LENGTH + MessageBundle.ENTRY_OVERHEAD + 1) + " and " + MAX_DATAGRAM_SIZE_LIMIT);
+        }
+        if (maxLingerMillis < 0) {
+            throw new IllegalArgumentException("Linger time must not be negative");
+        }
+        this.sendCoalescingMtu = mtu;
+        this.sendCoalescingLingerMillis = maxLingerMillis;
+        datagramProcessor.setCoalescing(mtu > 0);
+    }
+
+    /**
+     * @return Coalescing MTU, or 0 if coalescing is off
+     */
+    public int getSendCoalescingMtu() {
+        return sendCoalescingMtu;
+    }
+
+    public long getSendCoalescingLingerMillis() {
+        return sendCoalescingLingerMillis;
+    }
+
+    // Continues the sequence across sender re-creation
+    private int nextSequence;
+
+    /**
+     * Prefixes every datagram sent with this service's {@link #getSenderId() sender id} and
+     * a sequence number, so receivers can tell lost, reordered and duplicated datagrams
+     * apart from a sender that went quiet. Only nodes that number their own datagrams read
+     * the numbers of others, so enable it on every node. Adds 10 bytes per datagram.
+     * Takes effect with the next send.
+     */
+    public void setSequenceNumbering(boolean enabled) {
+        datagramProcessor.setSequenceNumbering(enabled);
+    }
+
+    public boolean isSequenceNumbering() {
+        return datagramProcessor.isSequenceNumbering();
+    }
+
+    /**
+     * @return Random id identifying this service in numbered datagrams
+     */
+    public int getSenderId() {
+        return datagramProcessor.getSenderId();
+    }
+
+    /**
+     * Sets the listener told about gaps, late arrivals and duplicates in the numbered
+     * datagrams of each sender, as they are received. It is called on a decode worker thread.
+     */
+    public void setSequenceListener(SequenceListener sequenceListener) {
+        datagramProcessor.setSequenceListener(sequenceListener);
+    }
+
+    /**
+     * @return Datagrams from {@code senderId} that never arrived (or have not yet)
+     */
+    public long getMissingDatagramCount(int senderId) {
+        return datagramProcessor.getSequenceTracker().getMissing(senderId);
+    }
+
+    /**
+     * @return Fraction of the numbered datagrams sent by {@code senderId} that were lost, 0-1
+     */
+    public double getDatagramLossRatio(int senderId) {
+        return datagramProcessor.getSequenceTracker().getLossRatio(senderId);
+    }
+
+    private int retransmitBufferSize = DEFAULT_RETRANSMIT_BUFFER;
+
+    /**
+     * Turns on NACK-based reliable delivery, for traffic that must not be lost. Datagrams
+     * are {@link #setSequenceNumbering numbered}; the last
+     * {@link #setRetransmitBufferSize retransmit buffer size} of them are kept, and repeated
+     * when a receiver NACKs them. Receivers NACK missing datagrams after a short random
+     * delay, hold back when they hear another receiver NACK the same ones, and give up
+     * after a few attempts. Every node must enable it to take part.
+     * <p>
+     * Datagrams are delivered as they arrive, so a repeated one comes after those sent
+     * after it. A numbered heartbeat follows the last datagram of a burst so a lost tail
+     * is noticed. Takes effect with the next send; call before {@link #startListening()}
+     * on nodes that only receive.
+     */
+    public void setReliableDelivery(boolean enabled) {
+        datagramProcessor.setReliableDelivery(enabled);
+    }
+
+    public boolean isReliableDelivery() {
+        return datagramProcessor.isReliableDelivery();
+    }
+
+    /**
+     * Sets how many sent datagrams are kept for repeats in reliable delivery mode; enough
+     * for about 2 s of traffic lets receivers recover from heavy loss. Memory use is this
+     * many times the largest datagram sent. Takes effect when the sender is next (re)created.
+     */
+    public void setRetransmitBufferSize(int datagrams) {
+        // Repeats must stay within the window in which receivers can spot duplicates
+        if (datagrams <= 0 || datagrams > SequenceTracker.WINDOW) {
+            throw new IllegalArgumentException("Retransmit buffer must hold between 1 and " +
+                    SequenceTracker.WINDOW + " datagrams");
+        }
+        this.retransmitBufferSize = datagrams;
+    }
+
+    public int getRetransmitBufferSize() {
+        return retransmitBufferSize;
+    }
+
+    /**
+     * @return Missed datagrams that reliable delivery gave up on
+     */
+    public long getUnrecoveredDatagramCount() {
+        return datagramProcessor.getNackScheduler().getLostCount();
+    }
+
+    /**
+     * Discards received datagrams chosen by {@code injector} before anything else sees them,
+     * to exercise loss handling, e.g. with a {@link RandomLossInjector}. Pass null to stop.
+     */
+    public void setLossInjector(LossInjector injector) {
+        datagramProcessor.setLossInjector(injector);
+    }
+
+    /**
+     * Drops datagrams that arrive more than once, e.g. over two interfaces or through a
+     * relay, before they are decoded. The last {@code window} datagrams are remembered, by
+     * sender id and sequence number when {@link #setSequenceNumbering numbered}, otherwise
+     * by a hash of their content. A repeat more than {@code maxAgeMillis} after the original
+     * is let through, so identical beacons keep arriving. The filter uses at most 32 bytes
+     * per datagram remembered. Pass 0 as window to turn filtering off (the default).
+     * Takes effect immediately and resets the suppressed count.
+     */
+    public void setDuplicateFilter(int window, long maxAgeMillis) {
+        if (window < 0 || window > MAX_DUPLICATE_WINDOW) {
+            throw new IllegalArgumentException("Window must be between 0 and " + MAX_DUPLICATE_WINDOW);
+        }
+        if (maxAgeMillis <= 0) {
+            throw new IllegalArgumentException("Maximum age must be positive");
+        }
+        datagramProcessor.setDuplicateFilter(window > 0
+                ? new DuplicateFilter(window, TimeUnit.MILLISECONDS.toNanos(maxAgeMillis)) : null);
+    }
+
+    /**
+     * @return Datagrams dropped as duplicates since the filter was last set
+     */
+    public long getSuppressedDuplicateCount() {
+        DuplicateFilter filter = datagramProcessor.getDuplicateFilter();
+        return filter != null ? filter.getSuppressedCount() : 0;
+    }
+
+    private final SendPacer sendPacer = new SendPacer();
+
+    /**
+     * Limits the send rate per multicast group so access points are not hit with
+     * microbursts. Either rate may be 0 for no limit on that dimension; both 0 disables
+     * pacing. Takes effect immediately and resets the pacing statistics.
+     *
+     * @param packetsPerSecond Sustained packets per second
+     * @param bytesPerSecond Sustained payload bytes per second
+     * @param burstPackets Packets that may leave back-to-back after an idle period
+     * @param burstBytes Bytes that may leave back-to-back after an idle period
+     */
+    public void setSendPacing(int packetsPerSecond, long bytesPerSecond, int burstPackets, long burstBytes) {
+        sendPacer.configure(packetsPerSecond, bytesPerSecond, burstPackets, burstBytes);
+    }
+
+    public boolean isSendPacingEnabled() {
+        return sendPacer.isEnabled();
+    }
+
+    /**
+     * @return Average time a paced packet waited for the pacer, including packets that did not wait
+     */
+    public long getAveragePacerWaitNanos() {
+        return sendPacer.getAverageWaitNanos();
+    }
+
+    public long getMaxPacerWaitNanos() {
+        return sendPacer.getMaxWaitNanos();
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * Sets what happens when the delivery queue is full. With decode workers,
+     * {@link OverflowPolicy#BLOCK} only ever blocks a worker: the receiver thread drops the
+     * oldest packet of a full worker inbox instead of waiting.
+     * Takes effect the next time {@link #startListening()} is called.
+     */
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
     private Context context;
-    private MulticastSocket socket;
+    private final Transport transport;
+    private final Handler mainHandler;
+    private final AtomicBoolean frameScheduled = new AtomicBoolean();
+    private final Runnable frameRequestTask = this::requestDeliveryFrame;
+    private final Choreographer.FrameCallback deliveryFrameCallback = this::deliverFrame;
+    private final ArrayList<ReceivedPacket> deliveryBatch = new ArrayList<>();
+    private final List<ReceivedPacket> deliveryBatchView = Collections.unmodifiableList(deliveryBatch);
+    private final Consumer<ReceivedPacket> batchCollector = deliveryBatch::add;
+    private Choreographer choreographer;
+    private volatile PacketPool packetPool;
+    private final Runnable deliveryRequest = this::scheduleDeliveryFrame;
+    private volatile ReceivePipeline receivePipeline;
+    private volatile ReceiveEngine receiveEngine;
     private InetAddress group;
     private WifiManager.MulticastLock multicastLock;
     private HandlerThread receiverThread;
@@ -44,14 +527,61 @@ public class MulticastService {
     private volatile boolean isListening = false;
     private MessageListener messageListener;
     private NetworkInterface selectedInterface;
+    private volatile MulticastSender sender;
+    private final FramePool framePool = new FramePool(MAX_POOLED_FRAMES);
+    private final HexParser hexParser = new HexParser();
+    private final OpcodeDispatcher frameDispatcher = new OpcodeDispatcher();
+    private final DatagramProcessor datagramProcessor = new DatagramProcessor(
+            ThreadLocalRandom.current().nextInt(),
+            new NackScheduler(MAX_PENDING_NACKS, TimeUnit.MILLISECONDS.toNanos(NACK_MIN_DELAY_MS),
+                    TimeUnit.MILLISECONDS.toNanos(NACK_MAX_DELAY_MS), TimeUnit.MILLISECONDS.toNanos(NACK_RETRY_MS),
+                    NACK_MAX_ATTEMPTS, new Random()),
+            new FrameDecoder());
+    private final List<PeriodicBroadcast> periodicBroadcasts = new CopyOnWriteArrayList<>();
 
     public interface MessageListener {
         void onMessageReceived(String message, String senderAddress);
         void onError(String error);
+
+        /**
+         * Called on the main thread once per display frame with every packet received
+         * since the previous frame. The packets are recycled when this method returns,
+         * so neither the list nor its elements may be kept.
+         * The default implementation forwards each packet to {@link #onMessageReceived}.
+         *
+         * @param messages Packets in arrival order
+         */
+        default void onMessagesReceived(List<ReceivedPacket> messages) {
+            for (int i = 0; i < messages.size(); i++) {
+                ReceivedPacket packet = messages.get(i);
+                onMessageReceived(packet.getMessage(), packet.getSenderAddress());
+            }
+        }
+    }
+
+    /**
+     * Socket implementation used to receive from the multicast group.
+     */
+    public enum Transport {
+        /** Blocking java.net.MulticastSocket reading into heap buffers */
+        SOCKET,
+        /** NIO DatagramChannel reading into a direct buffer, with MembershipKey source control */
+        CHANNEL
     }
 
     public MulticastService(Context context) {
+        this(context, Transport.SOCKET);
+    }
+
+    public MulticastService(Context context, Transport transport) {
         this.context = context.getApplicationContext();
+        this.transport = transport;
+        this.mainHandler = new Handler(this.context.getMainLooper());
+        datagramProcessor.setFrameListener(frameDispatcher);
+    }
+
+    public Transport getTransport() {
+        return transport;
     }
 
     public void setMessageListener(MessageListener listener) {
@@ -104,16 +634,29 @@ public class MulticastService {
                 Log.d(TAG, "Multicast lock not needed (Ethernet-only, saves battery)");
             }
 
-            // Create and configure multicast socket
-            socket = new MulticastSocket(getMulticastPort());
-            socket.setReuseAddress(true);
+            // Create the receive engine and join the group on the selected interface
             group = InetAddress.getByName(MULTICAST_GROUP);
-
-            // Join multicast group using modern API with explicit interface
-            SocketAddress groupAddress = new InetSocketAddress(group, getMulticastPort());
-            socket.joinGroup(groupAddress, selectedInterface);
+            ReceiveEngine engine = createReceiveEngine();
+            engine.open(group, getMulticastPort(), selectedInterface, receiveBufferSize);
+            receiveEngine = engine;
             Log.d(TAG, "Joined multicast group: " + MULTICAST_GROUP + ":" + getMulticastPort() +
-                    " on interface " + selectedInterface.getName());
+                    " on interface " + selectedInterface.getName() + " using " + transport);
+            Log.d(TAG, "Receive buffer: requested " + receiveBufferSize + ", effective " +
+                    engine.getEffectiveReceiveBufferSize() + " bytes");
+
+            // Packets pass through the pipeline between the receiver thread and the main thread
+            ReceivePipeline pipeline = new ReceivePipeline(decodeWorkerCount, receiveQueueCapacity,
+                    overflowPolicy, datagramProcessor, deliveryRequest);
+
+            // Room for full queues plus a full batch being delivered, within a memory budget.
+            // The spare byte per buffer lets the engine detect truncated datagrams.
+            int packetBufferSize = maxDatagramSize + 1;
+            int maxPooled = Math.max(1, Math.min(pipeline.capacity() + receiveQueueCapacity,
+                    MAX_POOLED_BYTES / packetBufferSize));
+            packetPool = new PacketPool(packetBufferSize, maxPooled);
+            datagramProcessor.setReassembler(newReassembler());
+            receivePipeline = pipeline;
+            pipeline.start();
 
             // Start receiver thread
             receiverThread = new HandlerThread("MulticastReceiver");
@@ -132,6 +675,10 @@ public class MulticastService {
 
             notifyMessage("Started listening on " + MULTICAST_GROUP + ":" + getMulticastPort() +
                     " via " + interfaceType);
+            if (!periodicBroadcasts.isEmpty() || datagramProcessor.isReliableDelivery()) {
+                // Resume beacons, or be ready to send NACKs, on the newly selected interface
+                ensureSender();
+            }
             return true;
 
         } catch (Exception e) {
@@ -142,40 +689,30 @@ public class MulticastService {
         }
     }
 
+    private ReceiveEngine createReceiveEngine() {
+        switch (transport) {
+            case CHANNEL:
+                return new ChannelReceiveEngine(maxDatagramSize);
+            case SOCKET:
+            default:
+                return new SocketReceiveEngine(maxDatagramSize);
+        }
+    }
+
     private void receiveMessages() {
-        byte[] buffer = new byte[BUFFER_SIZE];
+        ReceiveEngine engine = receiveEngine;
+        PacketPool pool = packetPool;
+        ReceivePipeline pipeline = receivePipeline;
         Log.d(TAG, "Receiver thread started");
 
-        while (isListening && socket != null && !socket.isClosed()) {
+        while (isListening && engine != null && engine.isOpen()) {
+            ReceivedPacket packet = pool.acquire();
             try {
-                DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
-                socket.receive(packet);
-
-                byte[] receivedData = new byte[packet.getLength()];
-                System.arraycopy(packet.getData(), 0, receivedData, 0, packet.getLength());
-
-                String message;
-                // Try to decode as UTF-8 text
-                if (isValidUtf8(receivedData)) {
-                    message = new String(receivedData, StandardCharsets.UTF_8);
-                } else {
-                    // If not valid UTF-8, display as hex
-                    message = "[HEX] " + bytesToHexString(receivedData);
-                }
-
-                String senderAddress = packet.getAddress().getHostAddress();
-
-                Log.d(TAG, "Received message from " + senderAddress + ": " + message);
-
-
-                if (messageListener != null) {
-                    // Post to main thread
-                    Handler mainHandler = new Handler(context.getMainLooper());
-                    final String finalMessage = message;
-                    mainHandler.post(() -> messageListener.onMessageReceived(finalMessage, senderAddress));
-                }
+                engine.receive(packet);
+                pipeline.dispatch(packet);
 
             } catch (IOException e) {
+                packet.recycle();
                 if (isListening) {
                     Log.e(TAG, "Error receiving message", e);
                     notifyError("Error receiving: " + e.getMessage());
@@ -187,6 +724,57 @@ public class MulticastService {
         Log.d(TAG, "Receiver thread stopped");
     }
 
+    /**
+     * Asks for the queued packets to be delivered on the next display frame unless a
+     * frame is already pending, so a burst of packets costs one callback per frame.
+     */
+    private void scheduleDeliveryFrame() {
+        if (frameScheduled.compareAndSet(false, true)) {
+            mainHandler.post(frameRequestTask);
+        }
+    }
+
+    /**
+     * Registers the delivery frame callback. Runs on the main thread, which owns the Choreographer.
+     */
+    private void requestDeliveryFrame() {
+        if (choreographer == null) {
+            choreographer = Choreographer.getInstance();
+        }
+        choreographer.postFrameCallback(deliveryFrameCallback);
+    }
+
+    /**
+     * Delivers everything queued since the previous frame as one batch. Runs on the main thread.
+     */
+    private void deliverFrame(long frameTimeNanos) {
+        // Clear the flag first so packets queued during delivery schedule the next frame
+        frameScheduled.set(false);
+        ReceivePipeline pipeline = receivePipeline;
+        if (pipeline == null) {
+            return;
+        }
+        deliveryBatch.ensureCapacity(pipeline.capacity());
+        pipeline.drainTo(batchCollector, pipeline.capacity());
+        if (deliveryBatch.isEmpty()) {
+            return;
+        }
+
+        try {
+            Log.v(TAG, "Delivering " + deliveryBatch.size() + " packet(s)");
+
+            MessageListener listener = messageListener;
+            if (listener != null) {
+                listener.onMessagesReceived(deliveryBatchView);
+            }
+        } finally {
+            for (int i = 0; i < deliveryBatch.size(); i++) {
+                deliveryBatch.get(i).recycle();
+            }
+            deliveryBatch.clear();
+        }
+    }
+
     public synchronized void stopListening() {
         if (!isListening) {
             Log.w(TAG, "Not listening");
@@ -196,22 +784,20 @@ public class MulticastService {
         isListening = false;
         Log.d(TAG, "Stopping multicast listener");
 
-        try {
-            // Leave multicast group using modern API with explicit interface
-            if (socket != null && group != null && selectedInterface != null) {
-                SocketAddress groupAddress = new InetSocketAddress(group, getMulticastPort());
-                socket.leaveGroup(groupAddress, selectedInterface);
-                Log.d(TAG, "Left multicast group on interface " + selectedInterface.getName());
-            }
-        } catch (IOException e) {
-            Log.e(TAG, "Error leaving multicast group", e);
+        // Stop the decode workers and release any thread waiting for queue space
+        ReceivePipeline pipeline = receivePipeline;
+        if (pipeline != null) {
+            pipeline.stop();
+            Log.d(TAG, "Receive pipeline dropped " + pipeline.getDroppedCount() + " packet(s)");
         }
 
-        // Close socket
-        if (socket != null) {
-            socket.close();
-            socket = null;
-            Log.d(TAG, "Socket closed");
+        // Leave the multicast group and close the socket
+        ReceiveEngine engine = receiveEngine;
+        if (engine != null) {
+            Log.d(TAG, "Receive stats (" + transport + "): " + engine.getStats());
+            engine.close();
+            receiveEngine = null;
+            Log.d(TAG, "Left multicast group and closed " + transport + " socket");
         }
 
         // Stop receiver thread
@@ -233,6 +819,9 @@ public class MulticastService {
             Log.d(TAG, "Multicast lock released");
         }
 
+        // Close the send channel; it is bound to the interface being released
+        stopSender();
+
         // Clear selected interface
         selectedInterface = null;
 
@@ -245,40 +834,241 @@ public class MulticastService {
             return;
         }
 
-        // Send on background thread
-        new Thread(() -> {
-            MulticastSocket sendSocket = null;
+        byte[] data = message.getBytes();
+        sendAsync(data).whenComplete((result, error) -> reportSend("Sent: " + message, data.length, error));
+    }
+
+    /**
+     * Queues a payload for the sender thread without waiting for it to be sent.
+     * Payloads are sent in the order they were queued. With fragmentation on, payloads
+     * larger than the {@link #setFragmentSize fragment size} are sent as fragments, which
+     * listeners receive as one reassembled message. When the send queue is full the
+     * send overflow policy applies; see {@link #setSendOverflowPolicy}.
+     *
+     * @param payload Bytes to send as one datagram; must not be modified until the future completes
+     * @return Future completed on the sender thread with the on-wire timestamp, or exceptionally
+     * with a RejectedExecutionException if the queue refused the payload or an IOException
+     * if the socket failed
+     */
+    public CompletableFuture<SendResult> sendAsync(byte[] payload) {
+        if (payload == null || payload.length == 0) {
+            CompletableFuture<SendResult> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new IllegalArgumentException("Payload cannot be empty"));
+            return failed;
+        }
+
+        MulticastSender current = ensureSender();
+        if (current == null) {
+            CompletableFuture<SendResult> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new IOException("Sender not available"));
+            return failed;
+        }
+        if (fragmentSize > 0 && payload.length > fragmentSize) {
             try {
-                sendSocket = new MulticastSocket();
-                InetAddress sendGroup = InetAddress.getByName(MULTICAST_GROUP);
+                return current.send(new MulticastSender.FragmentedSend(payload, fragmentSize));
+            } catch (IllegalArgumentException e) {
+                CompletableFuture<SendResult> failed = new CompletableFuture<>();
+                failed.completeExceptionally(e);
+                return failed;
+            }
+        }
+        return current.send(new MulticastSender.SendRequest(payload));
+    }
 
-                // Use same interface as receiver for consistency
-                if (selectedInterface != null) {
-                    sendSocket.setNetworkInterface(selectedInterface);
-                    Log.d(TAG, "Sending on interface: " + selectedInterface.getName());
-                }
+    /**
+     * Returns a pooled builder for a 55 AA frame with the given opcode. Pass it to
+     * {@link #sendFrame} when its fields are written, which returns it to the pool.
+     */
+    public FrameBuilder newFrame(int opcode) {
+        FrameBuilder builder = framePool.acquire();
+        builder.setChecksum(datagramProcessor.getFrameDecoder().getChecksum());
+        return builder.begin(opcode);
+    }
 
-                byte[] data = message.getBytes();
-                DatagramPacket packet = new DatagramPacket(
-                        data,
-                        data.length,
-                        sendGroup,
-                        getMulticastPort()
-                );
-
-                sendSocket.send(packet);
-                Log.d(TAG, "Sent message: " + message);
-                notifyMessage("Sent: " + message);
-
-            } catch (Exception e) {
-                Log.e(TAG, "Error sending message", e);
-                notifyError("Failed to send: " + e.getMessage());
-            } finally {
-                if (sendSocket != null) {
-                    sendSocket.close();
+    /**
+     * Finishes a frame from {@link #newFrame} and queues it for sending straight from the
+     * builder's buffer. The builder must not be touched after this call.
+     *
+     * @return Future as for {@link #sendAsync}
+     */
+    public CompletableFuture<SendResult> sendFrame(FrameBuilder frame) {
+        ByteBuffer buffer = frame.finish();
+        MulticastSender current = ensureSender();
+        if (current == null) {
+            frame.recycle();
+            CompletableFuture<SendResult> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new IOException("Sender not available"));
+            return failed;
+        }
+        CompletableFuture<SendResult> sent = current.send(
+                new MulticastSender.SendRequest(buffer.array(), buffer.arrayOffset(), buffer.limit()));
+        return sent.whenComplete((result, error) -> frame.recycle());
+    }
+
+    /**
+     * Sends pre-encoded payloads back-to-back from the sender thread, using a single queue
+     * entry so the burst is not interleaved with other sends and costs one wake-up.
+     *
+     * @param payloads Bytes of each datagram, in send order; must not be modified until the
+     *                 future completes
+     * @return Future completed with aggregate timing once every payload was attempted, or
+     * exceptionally if the send queue rejected the batch
+     */
+    public CompletableFuture<BatchSendResult> sendBatch(List<byte[]> payloads) {
+        if (payloads == null || payloads.isEmpty()) {
+            CompletableFuture<BatchSendResult> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new IllegalArgumentException("Batch cannot be empty"));
+            return failed;
+        }
+        for (byte[] payload : payloads) {
+            if (payload == null || payload.length == 0) {
+                CompletableFuture<BatchSendResult> failed = new CompletableFuture<>();
+                failed.completeExceptionally(new IllegalArgumentException("Payload cannot be empty"));
+                return failed;
+            }
+        }
+
+        MulticastSender current = ensureSender();
+        if (current == null) {
+            CompletableFuture<BatchSendResult> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new IOException("Sender not available"));
+            return failed;
+        }
+        return current.send(new MulticastSender.SendBatch(new ArrayList<>(payloads)));
+    }
+
+    /**
+     * Re-broadcasts a payload every {@code intervalMillis}, plus or minus a random jitter of
+     * up to {@code jitterMillis} so nodes started together do not stay in lockstep. The first
+     * broadcast goes out immediately, delayed by up to the jitter.
+     * <p>
+     * Broadcasts are timed by a timer wheel on the sender thread with 10 ms resolution, so
+     * many schedules cost no extra threads. They pause while the service is stopped and
+     * resume with the next {@link #startListening()} or send.
+     *
+     * @param payloadSupplier Called on the sender thread for each broadcast; may return null
+     *                        to skip a round
+     * @return Handle used to cancel the broadcast
+     */
+    public PeriodicBroadcast schedulePeriodic(long intervalMillis, long jitterMillis,
+                                              Supplier<byte[]> payloadSupplier) {
+        PeriodicBroadcast broadcast = new PeriodicBroadcast(intervalMillis, jitterMillis, payloadSupplier);
+        synchronized (this) {
+            // A newly created sender picks up the registered broadcasts itself
+            MulticastSender current = ensureSender();
+            periodicBroadcasts.add(broadcast);
+            if (current != null) {
+                current.schedule(broadcast);
+            }
+        }
+        return broadcast;
+    }
+
+    /**
+     * Cancels every broadcast registered with {@link #schedulePeriodic}.
+     */
+    public void cancelAllPeriodic() {
+        for (PeriodicBroadcast broadcast : periodicBroadcasts) {
+            broadcast.cancel();
+        }
+        periodicBroadcasts.clear();
+    }
+
+    /**
+     * Logs the outcome of a send started by the UI and notifies the listener.
+     */
+    private void reportSend(String description, int length, Throwable error) {
+        if (error == null) {
+            Log.d(TAG, description + " (" + length + " bytes)");
+            notifyMessage(description);
+        } else {
+            Log.e(TAG, "Error sending message", error);
+            notifyError("Failed to send: " + error.getMessage());
+        }
+    }
+
+    /**
+     * Returns the sender for the current group, port and interface, (re)creating it if
+     * any of them changed since it was started.
+     *
+     * @return The running sender, or null if it could not be started
+     */
+    private synchronized MulticastSender ensureSender() {
+        MulticastSender current = sender;
+        boolean reliableDelivery = datagramProcessor.isReliableDelivery();
+        boolean numbered = datagramProcessor.isSequenceNumbering() || reliableDelivery;
+        // Receivers only look for FE datagrams while one of these is on
+        boolean escaping = numbered || sendCoalescingMtu > 0 || fragmentSize > 0;
+        if (current != null && current.isRunning()
+                && current.getPort() == getMulticastPort()
+                && current.getNetworkInterface() == selectedInterface
+                && current.isSequencing() == numbered
+                && (current.getRetransmitBuffer() != null) == reliableDelivery
+                && current.isPayloadEscaping() == escaping) {
+            return current;
+        }
+        if (current != null) {
+            current.stop();
+            if (current.isSequencing()) {
+                nextSequence = current.getNextSequence();
+            }
+        }
+
+        try {
+            InetAddress sendGroup = InetAddress.getByName(MULTICAST_GROUP);
+            SendQueue queue = new SendQueue(sendQueueCapacity, sendOverflowPolicy, sendBlockTimeoutMillis);
+            current = new MulticastSender(sendGroup, getMulticastPort(), selectedInterface, queue, sendPacer);
+            if (sendCoalescingMtu > 0) {
+                // Numbered bundles must still fit the MTU once the header is added
+                int bundleMtu = numbered
+                        ? Math.max(sendCoalescingMtu - SequenceCodec.HEADER_LENGTH,
+                                MessageBundle.HEADER_LENGTH + MessageBundle.ENTRY_OVERHEAD + 1)
+                        : sendCoalescingMtu;
+                current.enableCoalescing(bundleMtu, sendCoalescingLingerMillis);
+            }
+            if (numbered) {
+                current.enableSequencing(datagramProcessor.getSenderId(), nextSequence);
+            }
+            if (escaping) {
+                current.enablePayloadEscaping();
+            }
+            if (reliableDelivery) {
+                current.enableReliableDelivery(new RetransmitBuffer(retransmitBufferSize,
+                        TimeUnit.MILLISECONDS.toNanos(RETRANSMIT_SUPPRESS_MS)), datagramProcessor.getNackScheduler());
+            }
+            current.start();
+            if (selectedInterface != null) {
+                Log.d(TAG, "Sending on interface: " + selectedInterface.getName());
+            }
+            for (PeriodicBroadcast broadcast : periodicBroadcasts) {
+                if (broadcast.isCancelled()) {
+                    periodicBroadcasts.remove(broadcast);
+                } else {
+                    current.schedule(broadcast);
                 }
             }
-        }).start();
+            sender = current;
+            datagramProcessor.setSender(current);
+            return current;
+        } catch (IOException e) {
+            Log.e(TAG, "Error creating sender", e);
+            notifyError("Failed to send: " + e.getMessage());
+            sender = null;
+            datagramProcessor.setSender(null);
+            return null;
+        }
+    }
+
+    private synchronized void stopSender() {
+        if (sender != null) {
+            Log.d(TAG, "Send stats: " + sender.getStats());
+            sender.stop();
+            if (sender.isSequencing()) {
+                nextSequence = sender.getNextSequence();
+            }
+            sender = null;
+            datagramProcessor.setSender(null);
+        }
     }
 
     public boolean isListening() {
@@ -287,14 +1077,12 @@ public class MulticastService {
 
     private void notifyMessage(String message) {
         if (messageListener != null) {
-            Handler mainHandler = new Handler(context.getMainLooper());
             mainHandler.post(() -> messageListener.onMessageReceived(message, "System"));
         }
     }
 
     private void notifyError(String error) {
         if (messageListener != null) {
-            Handler mainHandler = new Handler(context.getMainLooper());
             mainHandler.post(() -> messageListener.onError(error));
         }
     }
@@ -302,7 +1090,9 @@ public class MulticastService {
     public String getMulticastInfo() {
         StringBuilder info = new StringBuilder();
         info.append("Group: ").append(MULTICAST_GROUP).append("\n");
-        info.append("Port: ").append(getMulticastPort());
+        info.append("Port: ").append(getMulticastPort()).append("\n");
+        info.append("Transport: ").append(transport).append("\n");
+        info.append("Max datagram: ").append(maxDatagramSize).append(" bytes");
 
         if (selectedInterface != null) {
             String interfaceType = classifyInterfaceType(selectedInterface);
@@ -310,9 +1100,130 @@ public class MulticastService {
                 .append(" (").append(interfaceType).append(")");
         }
 
+        ReceiveEngine engine = receiveEngine;
+        if (engine != null) {
+            info.append("\nReceive buffer: ").append(engine.getEffectiveReceiveBufferSize())
+                    .append(" bytes");
+            info.append("\nReceived: ").append(engine.getStats());
+        }
+
+        MulticastSender currentSender = sender;
+        if (currentSender != null) {
+            SendQueue sendQueue = currentSender.getQueue();
+            info.append("\nSent: ").append(currentSender.getStats());
+            info.append("\nSend queue: ").append(sendQueue.size()).append("/").append(sendQueue.capacity())
+                    .append(" (").append(sendOverflowPolicy).append(", rejected ")
+                    .append(sendQueue.getRejectedCount()).append(")");
+            info.append("\nPacing: ").append(sendPacer);
+            if (currentSender.isCoalescing()) {
+                info.append("\nCoalescing: ").append(currentSender.getCoalescedMessageCount())
+                        .append(" messages in ").append(currentSender.getBundleCount()).append(" datagrams (MTU ")
+                        .append(sendCoalescingMtu).append(", linger ").append(sendCoalescingLingerMillis)
+                        .append(" ms)");
+            }
+        }
+
+        int activeBroadcasts = 0;
+        for (PeriodicBroadcast broadcast : periodicBroadcasts) {
+            if (!broadcast.isCancelled()) {
+                activeBroadcasts++;
+            }
+        }
+        if (activeBroadcasts > 0) {
+            info.append("\nPeriodic broadcasts: ").append(activeBroadcasts);
+        }
+
+        FrameDecoder frameDecoder = datagramProcessor.getFrameDecoder();
+        if (frameDecoder.getDecodedFrameCount() > 0 || frameDecoder.getTotalChecksumFailures() > 0) {
+            info.append("\nFrames (").append(frameDecoder.getChecksum()).append("): ")
+                    .append(frameDecoder.getDecodedFrameCount()).append(" decoded, ")
+                    .append(frameDecoder.getTotalChecksumFailures()).append(" bad checksum from ")
+                    .append(frameDecoder.getFailingSenderCount()).append(" sender(s), ")
+                    .append(frameDecoder.getMalformedCount()).append(" malformed");
+            if (datagramProcessor.getFrameListener() == frameDispatcher) {
+                info.append("\nUnhandled opcodes: ").append(frameDispatcher.getUnhandledCount());
+            }
+        }
+
+        DuplicateFilter filter = datagramProcessor.getDuplicateFilter();
+        if (filter != null) {
+            info.append("\nDuplicates: ").append(filter.getSuppressedCount())
+                    .append(" suppressed (window ").append(filter.getWindow()).append(")");
+        }
+
+        if (datagramProcessor.isReliableDelivery()) {
+            info.append("\nReliable: ").append(datagramProcessor.getNackScheduler());
+            RetransmitBuffer retransmits = currentSender != null ? currentSender.getRetransmitBuffer() : null;
+            if (retransmits != null) {
+                info.append(", repeated ").append(retransmits.getRetransmittedCount())
+                        .append(" (").append(retransmits.getExpiredCount()).append(" too old, ")
+                        .append(currentSender.getDroppedRetransmitRequestCount()).append(" requests dropped)");
+            }
+        }
+
+        SequenceTracker sequenceTracker = datagramProcessor.getSequenceTracker();
+        if (sequenceTracker.getSenderCount() > 0) {
+            info.append("\nSequences: ").append(sequenceTracker);
+        }
+
+        Reassembler currentReassembler = datagramProcessor.getReassembler();
+        if (currentReassembler != null && currentReassembler.getCompletedCount()
+                + currentReassembler.getEvictedCount() + currentReassembler.getDroppedCount() > 0) {
+            info.append("\nReassembly: ").append(currentReassembler);
+        }
+
+        ReceivePipeline pipeline = receivePipeline;
+        if (pipeline != null) {
+            info.append("\nQueue: ").append(pipeline.size()).append("/").append(pipeline.capacity())
+                    .append(" (").append(overflowPolicy).append(", ")
+                    .append(pipeline.getWorkerCount()).append(" worker(s), dropped ")
+                    .append(pipeline.getDroppedCount()).append(")");
+        }
+
         return info.toString();
     }
 
+    /**
+     * Stops delivery of datagrams from the given source while listening.
+     * Only supported by the {@link Transport#CHANNEL} transport.
+     *
+     * @param source Address of the sender to block
+     * @return true if the source is now blocked, false otherwise
+     */
+    public boolean blockSource(InetAddress source) {
+        ReceiveEngine engine = receiveEngine;
+        if (engine == null) {
+            notifyError("Cannot block source: not listening");
+            return false;
+        }
+        try {
+            engine.blockSource(source);
+            Log.d(TAG, "Blocked source " + source.getHostAddress());
+            return true;
+        } catch (UnsupportedOperationException | IOException e) {
+            Log.e(TAG, "Error blocking source " + source.getHostAddress(), e);
+            notifyError("Failed to block source: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Resumes delivery of datagrams from a source previously passed to {@link #blockSource}.
+     *
+     * @param source Address of the sender to unblock
+     */
+    public void unblockSource(InetAddress source) {
+        ReceiveEngine engine = receiveEngine;
+        if (engine == null) {
+            return;
+        }
+        try {
+            engine.unblockSource(source);
+        } catch (UnsupportedOperationException e) {
+            Log.w(TAG, "Source filtering not supported by " + transport);
+        }
+    }
+
     /**
      * Sends a hex-encoded message as raw bytes
      * @param hexString Hex string in format "55 AA 02 6B DA" (space-separated)
@@ -323,45 +1234,20 @@ public class MulticastService {
             return;
         }
 
-        // Send on background thread
-        new Thread(() -> {
-            MulticastSocket sendSocket = null;
-            try {
-                byte[] data = hexStringToBytes(hexString);
-                if (data == null || data.length == 0) {
-                    notifyError("Invalid hex format. Use space-separated hex bytes (e.g., '55 AA 02 6B DA')");
-                    return;
-                }
-
-                sendSocket = new MulticastSocket();
-                InetAddress sendGroup = InetAddress.getByName(MULTICAST_GROUP);
-
-                // Use same interface as receiver for consistency
-                if (selectedInterface != null) {
-                    sendSocket.setNetworkInterface(selectedInterface);
-                    Log.d(TAG, "Sending hex on interface: " + selectedInterface.getName());
-                }
+        byte[] data = hexStringToBytes(hexString);
+        if (data == null) {
+            return;
+        }
+        sendHexMessage(hexString, data);
+    }
 
-                DatagramPacket packet = new DatagramPacket(
-                        data,
-                        data.length,
-                        sendGroup,
-                        getMulticastPort()
-                );
-
-                sendSocket.send(packet);
-                Log.d(TAG, "Sent hex message: " + hexString + " (" + data.length + " bytes)");
-                notifyMessage("Sent HEX: " + hexString);
-
-            } catch (Exception e) {
-                Log.e(TAG, "Error sending hex message", e);
-                notifyError("Failed to send hex: " + e.getMessage());
-            } finally {
-                if (sendSocket != null) {
-                    sendSocket.close();
-                }
-            }
-        }).start();
+    /**
+     * Sends bytes the caller already parsed from {@code hexString}, e.g. while validating it.
+     *
+     * @param hexString Text the bytes came from, used for the sent notification
+     */
+    public void sendHexMessage(final String hexString, final byte[] data) {
+        sendAsync(data).whenComplete((result, error) -> reportSend("Sent HEX: " + hexString, data.length, error));
     }
 
     // ==================== Network Interface Management ====================
@@ -552,72 +1438,19 @@ public class MulticastService {
     // ==================== Helper Methods ====================
 
     /**
-     * Converts a hex string to byte array
-     * Format: "55 AA 02 6B DA" (space-separated, case-insensitive)
+     * Converts a hex string to byte array, reporting the error position to the listener
+     * Format: "55 AA 02 6B DA" or "55AA026BDA" (case-insensitive)
      * @param hexString The hex string to convert
      * @return byte array or null if invalid format
      */
     private byte[] hexStringToBytes(String hexString) {
-        if (hexString == null || hexString.trim().isEmpty()) {
-            return null;
-        }
-
-        try {
-            // Remove extra whitespace and split by spaces
-            String[] hexBytes = hexString.trim().split("\\s+");
-            byte[] bytes = new byte[hexBytes.length];
-
-            for (int i = 0; i < hexBytes.length; i++) {
-                // Parse each hex byte (e.g., "55" -> 0x55)
-                bytes[i] = (byte) Integer.parseInt(hexBytes[i], 16);
-            }
-
-            return bytes;
-        } catch (NumberFormatException e) {
-            Log.e(TAG, "Invalid hex format: " + hexString, e);
-            return null;
-        }
-    }
-
-    /**
-     * Converts byte array to hex string representation
-     * @param bytes The byte array to convert
-     * @return Hex string in format "55 AA 02 6B DA"
-     */
-    private String bytesToHexString(byte[] bytes) {
-        if (bytes == null || bytes.length == 0) {
-            return "";
-        }
-
-        StringBuilder hexString = new StringBuilder();
-        for (int i = 0; i < bytes.length; i++) {
-            if (i > 0) {
-                hexString.append(" ");
-            }
-            hexString.append(String.format("%02X", bytes[i] & 0xFF));
-        }
-        return hexString.toString();
-    }
-
-    /**
-     * Checks if byte array is valid UTF-8 text
-     * @param bytes The byte array to check
-     * @return true if valid UTF-8, false otherwise
-     */
-    private boolean isValidUtf8(byte[] bytes) {
-        try {
-            String test = new String(bytes, StandardCharsets.UTF_8);
-            // Check if the string contains mostly printable characters
-            int printableCount = 0;
-            for (char c : test.toCharArray()) {
-                if (c >= 32 && c < 127 || c == '\n' || c == '\r' || c == '\t') {
-                    printableCount++;
-                }
+        synchronized (hexParser) {
+            if (!hexParser.parse(hexString)) {
+                Log.e(TAG, "Invalid hex format: " + hexParser.getErrorMessage());
+                notifyError("Invalid hex format: " + hexParser.getErrorMessage());
+                return null;
             }
-            // If at least 80% are printable ASCII/whitespace, consider it text
-            return printableCount >= (test.length() * 0.8);
-        } catch (Exception e) {
-            return false;
+            return hexParser.toByteArray();
         }
     }
 
@@ -0,0 +1,68 @@
+package com.example.myapplication;
+
+/**
+ * Negative acknowledgement asking senders to repeat numbered datagrams
+ * ({@link SequenceCodec}) that did not arrive:
+ * <pre>
+ * FE 'N' | requester id (4) | entry count (1) | entries
+ * entry: sender id (4) | first sequence number (4) | run length (2)
+ * </pre>
+ * Fields are big-endian. NACKs themselves are not numbered. Every node hears every NACK,
+ * which lets receivers missing the same datagrams hold back their own.
+ */
+final class NackCodec {
+    static final byte MARKER = (byte) 0xFE;
+    static final byte TYPE = 'N';
+    static final int HEADER_LENGTH = 7;
+    static final int ENTRY_LENGTH = 10;
+    static final int MAX_ENTRIES = 64;
+    static final int MAX_LENGTH = HEADER_LENGTH + MAX_ENTRIES * ENTRY_LENGTH;
+    static final int MAX_RUN = 0xFFFF;
+
+    private NackCodec() {
+    }
+
+    static boolean isNack(byte[] data, int offset, int length) {
+        return length >= HEADER_LENGTH && data[offset] == MARKER && data[offset + 1] == TYPE
+                && length >= HEADER_LENGTH + (data[offset + 6] & 0xFF) * ENTRY_LENGTH;
+    }
+
+    static void writeHeader(byte[] out, int requesterId, int entries) {
+        out[0] = MARKER;
+        out[1] = TYPE;
+        FragmentCodec.writeInt(out, 2, requesterId);
+        out[6] = (byte) entries;
+    }
+
+    /**
+     * Writes entry {@code entry} after the header.
+     */
+    static void writeEntry(byte[] out, int entry, int senderId, int firstSequence, int run) {
+        int position = HEADER_LENGTH + entry * ENTRY_LENGTH;
+        FragmentCodec.writeInt(out, position, senderId);
+        FragmentCodec.writeInt(out, position + 4, firstSequence);
+        out[position + 8] = (byte) (run >>> 8);
+        out[position + 9] = (byte) run;
+    }
+
+    static int requesterId(byte[] data, int offset) {
+        return FragmentCodec.readInt(data, offset + 2);
+    }
+
+    static int entryCount(byte[] data, int offset) {
+        return data[offset + 6] & 0xFF;
+    }
+
+    static int senderId(byte[] data, int offset, int entry) {
+        return FragmentCodec.readInt(data, offset + HEADER_LENGTH + entry * ENTRY_LENGTH);
+    }
+
+    static int firstSequence(byte[] data, int offset, int entry) {
+        return FragmentCodec.readInt(data, offset + HEADER_LENGTH + entry * ENTRY_LENGTH + 4);
+    }
+
+    static int run(byte[] data, int offset, int entry) {
+        int position = offset + HEADER_LENGTH + entry * ENTRY_LENGTH + 8;
+        return (data[position] & 0xFF) << 8 | (data[position + 1] & 0xFF);
+    }
+}
@@ -0,0 +1,233 @@
+package com.example.myapplication;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Decides when a receiver NACKs the numbered datagrams it is missing, keeping a lossy cell
+ * from answering every loss with a storm of NACKs:
+ * <ul>
+ * <li>A newly missed datagram waits a random delay before it is NACKed, so the receivers
+ * missing it do not all ask at once.</li>
+ * <li>Hearing another receiver NACK it postpones our own request by the retry interval,
+ * time for the repeat to arrive (suppression).</li>
+ * <li>Everything due at once goes into one NACK, consecutive numbers as runs
+ * (aggregation).</li>
+ * <li>A datagram is requested at most {@code maxAttempts} times, with the retry interval
+ * doubling once, then given up on.</li>
+ * </ul>
+ * At most {@code maxPending} datagrams are tracked; losses beyond that are not recovered.
+ * Thread-safe; {@link #poll} is meant for the sender thread.
+ */
+final class NackScheduler {
+    // The retry interval grows to at most twice its initial value, so that late retries
+    // still fall within the time a retransmit buffer holds a datagram
+    private static final int MAX_BACKOFF_SHIFT = 1;
+
+    private final long minDelayNanos;
+    private final long delaySpreadNanos;
+    private final long retryNanos;
+    private final int maxAttempts;
+    private final Random random;
+
+    private final int[] senderIds;
+    private final int[] sequences;
+    private final long[] deadlines;
+    private final int[] attempts;
+    private int size;
+    private final long[] dueKeys;
+
+    private long nacksSent;
+    private long requested;
+    private long suppressed;
+    private long recovered;
+    private long abandoned;
+    private long overflow;
+
+    /**
+     * @param minDelayNanos Shortest wait before a missed datagram is first NACKed
+     * @param maxDelayNanos Longest wait before a missed datagram is first NACKed
+     * @param retryNanos Wait before NACKing it again, doubled after the first
+     * @param random Source of the random delays; seed it for repeatable tests
+     */
+    NackScheduler(int maxPending, long minDelayNanos, long maxDelayNanos, long retryNanos, int maxAttempts,
+                  Random random) {
+        if (maxPending <= 0 || maxAttempts <= 0 || minDelayNanos < 0 || maxDelayNanos < minDelayNanos
+                || retryNanos <= 0) {
+            throw new IllegalArgumentException("Invalid NACK timing");
+        }
+        this.minDelayNanos = minDelayNanos;
+        this.delaySpreadNanos = maxDelayNanos - minDelayNanos;
+        this.retryNanos = retryNanos;
+        this.maxAttempts = maxAttempts;
+        this.random = random;
+        this.senderIds = new int[maxPending];
+        this.sequences = new int[maxPending];
+        this.deadlines = new long[maxPending];
+        this.attempts = new int[maxPending];
+        this.dueKeys = new long[maxPending];
+    }
+
+    /**
+     * Starts tracking {@code count} datagrams from {@code senderId} found missing.
+     */
+    synchronized void onGap(int senderId, int firstMissing, int count, long nowNanos) {
+        for (int i = 0; i < count; i++) {
+            if (size == senderIds.length) {
+                overflow += count - i;
+                return;
+            }
+            senderIds[size] = senderId;
+            sequences[size] = firstMissing + i;
+            deadlines[size] = nowNanos + minDelayNanos
+                    + (delaySpreadNanos > 0 ? (long) (random.nextDouble() * delaySpreadNanos) : 0);
+            attempts[size] = 0;
+            size++;
+        }
+    }
+
+    /**
+     * Stops tracking a datagram that arrived late or was repeated.
+     */
+    synchronized void onReceived(int senderId, int sequence) {
+        for (int i = 0; i < size; i++) {
+            if (sequences[i] == sequence && senderIds[i] == senderId) {
+                remove(i);
+                recovered++;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Holds back our own NACKs for a range another receiver just asked for.
+     */
+    synchronized void onNackHeard(int senderId, int firstSequence, int run, long nowNanos) {
+        for (int i = 0; i < size; i++) {
+            if (senderIds[i] == senderId && Integer.compareUnsigned(sequences[i] - firstSequence, run) < 0) {
+                long postponed = nowNanos + retryNanos;
+                if (deadlines[i] - postponed < 0) {
+                    deadlines[i] = postponed;
+                    suppressed++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes a NACK for the datagrams whose wait is over, at most
+     * {@link NackCodec#MAX_ENTRIES} runs; call again while it returns a NACK.
+     *
+     * @param out At least {@link NackCodec#MAX_LENGTH} bytes
+     * @return Length of the NACK written to {@code out}, or 0 if nothing is due
+     */
+    synchronized int poll(long nowNanos, int requesterId, byte[] out) {
+        int due = 0;
+        for (int i = size - 1; i >= 0; i--) {
+            if (deadlines[i] - nowNanos > 0) {
+                continue;
+            }
+            if (attempts[i] == maxAttempts) {
+                // No repeat arrived after the last request either
+                remove(i);
+                abandoned++;
+            } else {
+                dueKeys[due++] = key(senderIds[i], sequences[i]);
+            }
+        }
+        if (due == 0) {
+            return 0;
+        }
+        Arrays.sort(dueKeys, 0, due);
+
+        // Merge consecutive numbers of a sender into runs
+        int entries = 0;
+        int included = 0;
+        while (included < due && entries < NackCodec.MAX_ENTRIES) {
+            long first = dueKeys[included];
+            int run = 1;
+            while (included + run < due && run < NackCodec.MAX_RUN && dueKeys[included + run] == first + run
+                    && (int) (first >>> 32) == (int) (dueKeys[included + run] >>> 32)) {
+                run++;
+            }
+            NackCodec.writeEntry(out, entries++, (int) (first >>> 32), (int) first, run);
+            included += run;
+        }
+        NackCodec.writeHeader(out, requesterId, entries);
+
+        long lastIncluded = dueKeys[included - 1];
+        for (int i = 0; i < size; i++) {
+            if (deadlines[i] - nowNanos <= 0 && key(senderIds[i], sequences[i]) <= lastIncluded) {
+                attempts[i]++;
+                deadlines[i] = nowNanos + (retryNanos << Math.min(attempts[i] - 1, MAX_BACKOFF_SHIFT));
+            }
+        }
+        nacksSent++;
+        requested += included;
+        return NackCodec.HEADER_LENGTH + entries * NackCodec.ENTRY_LENGTH;
+    }
+
+    /**
+     * @return Time until the next NACK is due, 0 if one is due now, or Long.MAX_VALUE if
+     * nothing is missing
+     */
+    synchronized long nanosUntilNextDeadline(long nowNanos) {
+        long next = Long.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            next = Math.min(next, Math.max(0, deadlines[i] - nowNanos));
+        }
+        return next;
+    }
+
+    private static long key(int senderId, int sequence) {
+        return (long) senderId << 32 | (sequence & 0xFFFFFFFFL);
+    }
+
+    private void remove(int i) {
+        size--;
+        senderIds[i] = senderIds[size];
+        sequences[i] = sequences[size];
+        deadlines[i] = deadlines[size];
+        attempts[i] = attempts[size];
+    }
+
+    synchronized int getPendingCount() {
+        return size;
+    }
+
+    synchronized long getNackCount() {
+        return nacksSent;
+    }
+
+    /**
+     * @return Datagrams asked for, counting each attempt
+     */
+    synchronized long getRequestedCount() {
+        return requested;
+    }
+
+    /**
+     * @return Missed datagrams that arrived after all, repeated or late
+     */
+    synchronized long getRecoveredCount() {
+        return recovered;
+    }
+
+    /**
+     * @return Missed datagrams given up on after the last attempt, or not tracked for lack of room
+     */
+    synchronized long getLostCount() {
+        return abandoned + overflow;
+    }
+
+    synchronized long getSuppressedCount() {
+        return suppressed;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format(Locale.US, "%d pending, %d NACKs for %d datagrams, %d suppressed, %d recovered, %d lost",
+                size, nacksSent, requested, suppressed, recovered, abandoned + overflow);
+    }
+}
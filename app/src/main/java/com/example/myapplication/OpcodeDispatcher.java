@@ -0,0 +1,106 @@
+package com.example.myapplication;
+
+import android.util.Log;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Routes decoded 55 AA frames to a handler per opcode through a flat 256-entry table,
+ * so dispatch is one array load with no hashing or boxing. Frames whose opcode has no
+ * handler go to the fallback, if any.
+ * <p>
+ * Handlers may be registered and removed from any thread while frames are dispatched.
+ * Each opcode counts its frames and the handler exceptions, which are caught and logged
+ * so one faulty handler cannot stop the decode worker.
+ */
+public final class OpcodeDispatcher implements FrameListener {
+    private static final String TAG = "OpcodeDispatcher";
+    private static final int OPCODES = 256;
+
+    private final AtomicReferenceArray<FrameListener> handlers = new AtomicReferenceArray<>(OPCODES);
+    private final AtomicLongArray hits = new AtomicLongArray(OPCODES);
+    private final AtomicLongArray failures = new AtomicLongArray(OPCODES);
+    private final AtomicLong unhandled = new AtomicLong();
+    private volatile FrameListener fallback;
+
+    /**
+     * Sets the handler for {@code opcode}, replacing any previous one.
+     *
+     * @return The previous handler, or null
+     */
+    public FrameListener register(int opcode, FrameListener handler) {
+        checkOpcode(opcode);
+        return handlers.getAndSet(opcode, handler);
+    }
+
+    /**
+     * @return The removed handler, or null
+     */
+    public FrameListener unregister(int opcode) {
+        checkOpcode(opcode);
+        return handlers.getAndSet(opcode, null);
+    }
+
+    /**
+     * Sets the handler for frames whose opcode has none, or null to drop them.
+     */
+    public void setFallback(FrameListener fallback) {
+        this.fallback = fallback;
+    }
+
+    @Override
+    public void onFrame(FrameView frame) {
+        int opcode = frame.getOpcode();
+        hits.incrementAndGet(opcode);
+        FrameListener handler = handlers.get(opcode);
+        if (handler == null) {
+            unhandled.incrementAndGet();
+            handler = fallback;
+            if (handler == null) {
+                return;
+            }
+        }
+        try {
+            handler.onFrame(frame);
+        } catch (RuntimeException e) {
+            failures.incrementAndGet(opcode);
+            Log.w(TAG, "Handler for opcode 0x" + Integer.toHexString(opcode) + " failed", e);
+        }
+    }
+
+    /**
+     * @return Frames received with {@code opcode}, handled or not
+     */
+    public long getHitCount(int opcode) {
+        checkOpcode(opcode);
+        return hits.get(opcode);
+    }
+
+    /**
+     * @return Frames with {@code opcode} whose handler threw
+     */
+    public long getFailureCount(int opcode) {
+        checkOpcode(opcode);
+        return failures.get(opcode);
+    }
+
+    public boolean hasHandler(int opcode) {
+        checkOpcode(opcode);
+        return handlers.get(opcode) != null;
+    }
+
+    /**
+     * @return Frames whose opcode had no handler, whether or not a fallback took them
+     */
+    public long getUnhandledCount() {
+        return unhandled.get();
+    }
+
+    private static void checkOpcode(int opcode) {
+        if (opcode < 0 || opcode >= OPCODES) {
+            throw new IllegalArgumentException("Opcode must be 0-255: " + opcode);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.myapplication;
+
+/**
+ * What a bounded queue does when a producer offers an element and the queue is full.
+ */
+public enum OverflowPolicy {
+    /** Evict the oldest queued element to make room for the new one */
+    DROP_OLDEST,
+    /** Discard the element being offered */
+    DROP_NEWEST,
+    /** Wait for the consumer to free a slot */
+    BLOCK
+}
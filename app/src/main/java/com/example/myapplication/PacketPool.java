@@ -0,0 +1,57 @@
+package com.example.myapplication;
+
+/**
+ * Fixed-size pool of {@link ReceivedPacket} buffers shared between the receiver
+ * thread and the thread that delivers packets.
+ * The pool grows on demand when empty and keeps at most {@code maxPooled} idle packets,
+ * so in steady state acquiring and releasing a packet allocates nothing.
+ */
+final class PacketPool {
+    private final int bufferSize;
+    private final ReceivedPacket[] idle;
+    private int idleCount;
+    private int createdCount;
+
+    PacketPool(int bufferSize, int maxPooled) {
+        if (bufferSize <= 0 || maxPooled <= 0) {
+            throw new IllegalArgumentException("bufferSize and maxPooled must be positive");
+        }
+        this.bufferSize = bufferSize;
+        this.idle = new ReceivedPacket[maxPooled];
+    }
+
+    int getBufferSize() {
+        return bufferSize;
+    }
+
+    synchronized ReceivedPacket acquire() {
+        if (idleCount > 0) {
+            ReceivedPacket packet = idle[--idleCount];
+            idle[idleCount] = null;
+            return packet;
+        }
+        createdCount++;
+        return new ReceivedPacket(this, bufferSize);
+    }
+
+    synchronized void release(ReceivedPacket packet) {
+        if (packet.pool != this) {
+            throw new IllegalArgumentException("Packet belongs to another pool");
+        }
+        if (idleCount < idle.length) {
+            idle[idleCount++] = packet;
+        }
+        // Otherwise drop it and let the GC reclaim the overflow
+    }
+
+    /**
+     * @return Number of packets allocated by this pool since it was created
+     */
+    synchronized int getCreatedCount() {
+        return createdCount;
+    }
+
+    synchronized int getIdleCount() {
+        return idleCount;
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.myapplication;
+
+/**
+ * Decides whether a received payload should be shown as text or as hex.
+ * <p>
+ * Works directly on the byte range in a single pass without decoding to a String.
+ * A payload counts as text when at least 80% of its characters are printable:
+ * printable ASCII, tab, CR and LF, or any well-formed multi-byte UTF-8 character.
+ * Every byte of a malformed sequence counts as one non-printable character.
+ */
+final class PayloadClassifier {
+
+    private PayloadClassifier() {
+    }
+
+    /**
+     * Checks if a byte range is mostly printable UTF-8 text
+     * @param bytes The byte array to check
+     * @param offset Index of the first byte
+     * @param length Number of bytes to check
+     * @return true if mostly printable text, false otherwise
+     */
+    static boolean isText(byte[] bytes, int offset, int length) {
+        int end = offset + length;
+        int characters = 0;
+        int nonPrintable = 0;
+        int i = offset;
+
+        while (i < end) {
+            // Fast path over runs of printable ASCII, the common case for text payloads
+            int runStart = i;
+            while (i < end && bytes[i] >= 32 && bytes[i] < 127) {
+                i++;
+            }
+            characters += i - runStart;
+            if (i == end) {
+                break;
+            }
+
+            int b = bytes[i] & 0xFF;
+            int sequenceLength = 1;
+            boolean printable;
+
+            if (b < 0x80) {
+                printable = b >= 32 && b < 127 || b == '\n' || b == '\r' || b == '\t';
+            } else {
+                sequenceLength = validSequenceLength(bytes, i, end, b);
+                if (sequenceLength == 0) {
+                    sequenceLength = 1;
+                    printable = false;
+                } else {
+                    printable = true;
+                }
+            }
+
+            i += sequenceLength;
+            characters++;
+            if (!printable) {
+                nonPrintable++;
+                // Every remaining byte could at best be one printable character;
+                // stop as soon as even that cannot bring us back to 80%
+                if (nonPrintable * 5 > characters + (end - i)) {
+                    return false;
+                }
+            }
+        }
+
+        // At least 80% printable, i.e. at most one character in five is not
+        return nonPrintable * 5 <= characters;
+    }
+
+    /**
+     * Returns the length of the well-formed UTF-8 sequence starting with lead byte {@code b}
+     * at {@code index}, or 0 if it is malformed, overlong, a surrogate or beyond U+10FFFF.
+     */
+    private static int validSequenceLength(byte[] bytes, int index, int end, int b) {
+        int length;
+        int min = 0x80;
+        int max = 0xBF;
+        if (b >= 0xC2 && b <= 0xDF) {
+            length = 2;
+        } else if (b >= 0xE0 && b <= 0xEF) {
+            length = 3;
+            if (b == 0xE0) {
+                min = 0xA0;      // overlong
+            } else if (b == 0xED) {
+                max = 0x9F;      // surrogates
+            }
+        } else if (b >= 0xF0 && b <= 0xF4) {
+            length = 4;
+            if (b == 0xF0) {
+                min = 0x90;      // overlong
+            } else if (b == 0xF4) {
+                max = 0x8F;      // beyond U+10FFFF
+            }
+        } else {
+            return 0;
+        }
+
+        if (index + length > end) {
+            return 0;
+        }
+        int second = bytes[index + 1] & 0xFF;
+        if (second < min || second > max) {
+            return 0;
+        }
+        for (int k = 2; k < length; k++) {
+            int continuation = bytes[index + k] & 0xFF;
+            if (continuation < 0x80 || continuation > 0xBF) {
+                return 0;
+            }
+        }
+        return length;
+    }
+}
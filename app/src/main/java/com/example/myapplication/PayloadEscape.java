@@ -0,0 +1,49 @@
+package com.example.myapplication;
+
+/**
+ * Keeps application payloads from being taken for the service's own datagrams, which all
+ * start with the marker byte FE and a type letter: 'B' bundles ({@link MessageBundle}),
+ * 'F' fragments ({@link FragmentCodec}), 'S' numbered datagrams and 'H' heartbeats
+ * ({@link SequenceCodec}), 'N' NACKs ({@link NackCodec}).
+ * <p>
+ * While the service uses any of these, a payload sent in a datagram of its own that
+ * starts with FE is prefixed with FE 'E':
+ * <pre>
+ * FE 'E' | payload
+ * </pre>
+ * and the receiver strips the prefix and delivers the payload without looking for any
+ * other marker. Payloads inside bundles and fragments need no escaping, and with all of
+ * these features off payloads go out unchanged.
+ */
+final class PayloadEscape {
+    static final byte MARKER = (byte) 0xFE;
+    static final byte TYPE = 'E';
+    static final int HEADER_LENGTH = 2;
+
+    private PayloadEscape() {
+    }
+
+    /**
+     * @return true if a payload sent on its own could be mistaken for a service datagram
+     */
+    static boolean needsEscape(byte[] data, int offset, int length) {
+        return length > 0 && data[offset] == MARKER;
+    }
+
+    static boolean isEscaped(byte[] data, int offset, int length) {
+        return length >= HEADER_LENGTH && data[offset] == MARKER && data[offset + 1] == TYPE;
+    }
+
+    /**
+     * Writes the escape prefix and the payload to {@code out}.
+     *
+     * @param out At least {@code length + HEADER_LENGTH} bytes
+     * @return Length of the escaped payload
+     */
+    static int escape(byte[] data, int offset, int length, byte[] out) {
+        out[0] = MARKER;
+        out[1] = TYPE;
+        System.arraycopy(data, offset, out, HEADER_LENGTH, length);
+        return HEADER_LENGTH + length;
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.myapplication;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * A payload re-broadcast on a fixed interval, such as a position or status beacon.
+ * Returned by {@link MulticastService#schedulePeriodic}; fired by the sender thread.
+ */
+public final class PeriodicBroadcast {
+    private final long intervalNanos;
+    private final long jitterNanos;
+    private final Supplier<byte[]> payloadSupplier;
+    private volatile boolean cancelled;
+    private volatile long sentCount;
+    private volatile long failedCount;
+
+    // Unjittered time of the next broadcast; only touched on the sender thread
+    long nominalNanos;
+
+    PeriodicBroadcast(long intervalMillis, long jitterMillis, Supplier<byte[]> payloadSupplier) {
+        if (intervalMillis <= 0) {
+            throw new IllegalArgumentException("Interval must be positive");
+        }
+        if (jitterMillis < 0 || jitterMillis > intervalMillis) {
+            throw new IllegalArgumentException("Jitter must be between 0 and the interval");
+        }
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        this.jitterNanos = TimeUnit.MILLISECONDS.toNanos(jitterMillis);
+        this.payloadSupplier = payloadSupplier;
+    }
+
+    /**
+     * Stops further broadcasts. A broadcast already in progress still completes.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public long getIntervalMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(intervalNanos);
+    }
+
+    public long getJitterMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(jitterNanos);
+    }
+
+    /**
+     * @return Number of payloads handed to the socket
+     */
+    public long getSentCount() {
+        return sentCount;
+    }
+
+    /**
+     * @return Number of rounds where the supplier threw or the socket rejected the payload
+     */
+    public long getFailedCount() {
+        return failedCount;
+    }
+
+    Supplier<byte[]> getPayloadSupplier() {
+        return payloadSupplier;
+    }
+
+    /**
+     * Starts the schedule at {@code nowNanos}.
+     *
+     * @return Deadline of the first broadcast: now, delayed by up to the jitter
+     */
+    long firstDeadline(long nowNanos) {
+        nominalNanos = nowNanos;
+        return jitterNanos == 0 ? nowNanos : nowNanos + ThreadLocalRandom.current().nextLong(jitterNanos + 1);
+    }
+
+    /**
+     * Advances the schedule by one interval. If broadcasts fell behind (e.g. the pacer held
+     * them), the schedule restarts from now instead of firing a catch-up burst.
+     *
+     * @return Deadline of the next broadcast: the interval plus or minus the jitter
+     */
+    long nextDeadline(long nowNanos) {
+        nominalNanos += intervalNanos;
+        if (nominalNanos < nowNanos) {
+            nominalNanos = nowNanos;
+        }
+        if (jitterNanos == 0) {
+            return nominalNanos;
+        }
+        return nominalNanos + ThreadLocalRandom.current().nextLong(-jitterNanos, jitterNanos + 1);
+    }
+
+    // Counters are written only by the sender thread
+    void recordSent() {
+        sentCount++;
+    }
+
+    void recordFailure() {
+        failedCount++;
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.myapplication;
+
+import java.util.Random;
+
+/**
+ * Drops each datagram independently with a fixed probability. Thread-safe.
+ */
+public final class RandomLossInjector implements LossInjector {
+    private final double lossRate;
+    private final Random random;
+
+    /**
+     * @param lossRate Fraction of datagrams to drop, 0-1
+     * @param seed Seed of the random sequence, for repeatable runs
+     */
+    public RandomLossInjector(double lossRate, long seed) {
+        if (lossRate < 0 || lossRate > 1) {
+            throw new IllegalArgumentException("Loss rate must be between 0 and 1");
+        }
+        this.lossRate = lossRate;
+        this.random = new Random(seed);
+    }
+
+    @Override
+    public boolean shouldDrop(byte[] data, int offset, int length) {
+        return random.nextDouble() < lossRate;
+    }
+}
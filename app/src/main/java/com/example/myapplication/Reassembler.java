@@ -0,0 +1,211 @@
+package com.example.myapplication;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Reassembles fragmented messages ({@link FragmentCodec}) in a fixed arena allocated up
+ * front: a few slots, each as large as the largest accepted message, with a bitmap of the
+ * fragments received so far. Memory use is therefore bounded no matter what arrives.
+ * <p>
+ * A slot is freed when its message completes, or evicted once no fragment has arrived
+ * for the timeout. Fragments of a new message are dropped while every slot is busy with
+ * a live transfer. Thread-safe.
+ */
+final class Reassembler {
+    private static final int RECENTLY_COMPLETED = 16;
+
+    private final int slotCapacity;
+    private final long timeoutNanos;
+    private final byte[] arena;
+    private final int bitmapWords = (FragmentCodec.MAX_FRAGMENTS + 63) / 64;
+    private final long[] bitmaps;
+
+    private final boolean[] active;
+    private final int[] senderKeys;
+    private final int[] messageIds;
+    private final int[] counts;
+    private final int[] totals;
+    private final int[] received;
+    private final long[] lastActivity;
+
+    // Sender and message id of recently completed messages, so late copies of their
+    // fragments do not start a new transfer
+    private final long[] recentlyCompleted = new long[RECENTLY_COMPLETED];
+    private int recentlyCompletedNext;
+
+    private long completed;
+    private long evicted;
+    private long dropped;
+    private long duplicates;
+
+    /**
+     * @param slots Messages reassembled at the same time
+     * @param slotCapacity Largest message accepted, in bytes
+     * @param timeoutNanos Time without a fragment after which a partial message is evicted
+     */
+    Reassembler(int slots, int slotCapacity, long timeoutNanos) {
+        if (slots <= 0 || slotCapacity <= 0) {
+            throw new IllegalArgumentException("Slots and capacity must be positive");
+        }
+        this.slotCapacity = slotCapacity;
+        this.timeoutNanos = timeoutNanos;
+        this.arena = new byte[Math.multiplyExact(slots, slotCapacity)];
+        this.bitmaps = new long[slots * bitmapWords];
+        this.active = new boolean[slots];
+        this.senderKeys = new int[slots];
+        this.messageIds = new int[slots];
+        this.counts = new int[slots];
+        this.totals = new int[slots];
+        this.received = new int[slots];
+        this.lastActivity = new long[slots];
+    }
+
+    /**
+     * Adds one fragment datagram. A completed message is copied out of the arena, so the
+     * caller can hand it on without holding the reassembler's lock.
+     *
+     * @param senderKey Identifies the sender, e.g. the hash of its address
+     * @return The message if this fragment completed it, otherwise null
+     */
+    synchronized byte[] offer(int senderKey, byte[] data, int offset, int length, long nowNanos) {
+        evictExpired(nowNanos);
+
+        int messageId = FragmentCodec.messageId(data, offset);
+        int index = FragmentCodec.index(data, offset);
+        int count = FragmentCodec.count(data, offset);
+        int total = FragmentCodec.totalLength(data, offset);
+        int fragmentLength = length - FragmentCodec.HEADER_LENGTH;
+        long position = index < count - 1 ? (long) index * fragmentLength : total - fragmentLength;
+        if (count == 0 || index >= count || total <= 0 || total > slotCapacity
+                || position < 0 || position + fragmentLength > total) {
+            dropped++;
+            return null;
+        }
+
+        int slot = findSlot(senderKey, messageId);
+        if (slot < 0 && wasCompleted(senderKey, messageId)) {
+            duplicates++;
+            return null;
+        }
+        if (slot < 0) {
+            slot = freeSlot();
+            if (slot < 0) {
+                dropped++;
+                return null;
+            }
+            active[slot] = true;
+            senderKeys[slot] = senderKey;
+            messageIds[slot] = messageId;
+            counts[slot] = count;
+            totals[slot] = total;
+            received[slot] = 0;
+            Arrays.fill(bitmaps, slot * bitmapWords, slot * bitmapWords + (count + 63) / 64, 0L);
+        } else if (counts[slot] != count || totals[slot] != total) {
+            dropped++;
+            return null;
+        }
+
+        int word = slot * bitmapWords + (index >>> 6);
+        long bit = 1L << index;
+        if ((bitmaps[word] & bit) != 0) {
+            duplicates++;
+            return null;
+        }
+        bitmaps[word] |= bit;
+        lastActivity[slot] = nowNanos;
+        int base = slot * slotCapacity;
+        System.arraycopy(data, offset + FragmentCodec.HEADER_LENGTH, arena, base + (int) position, fragmentLength);
+
+        if (++received[slot] == count) {
+            active[slot] = false;
+            completed++;
+            recentlyCompleted[recentlyCompletedNext] = key(senderKey, messageId);
+            recentlyCompletedNext = (recentlyCompletedNext + 1) % RECENTLY_COMPLETED;
+            return Arrays.copyOfRange(arena, base, base + total);
+        }
+        return null;
+    }
+
+    private int findSlot(int senderKey, int messageId) {
+        for (int i = 0; i < active.length; i++) {
+            if (active[i] && senderKeys[i] == senderKey && messageIds[i] == messageId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static long key(int senderKey, int messageId) {
+        return (long) senderKey << 32 | (messageId & 0xFFFFFFFFL);
+    }
+
+    private boolean wasCompleted(int senderKey, int messageId) {
+        long key = key(senderKey, messageId);
+        for (int i = 0; i < completed && i < RECENTLY_COMPLETED; i++) {
+            if (recentlyCompleted[i] == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int freeSlot() {
+        for (int i = 0; i < active.length; i++) {
+            if (!active[i]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void evictExpired(long nowNanos) {
+        for (int i = 0; i < active.length; i++) {
+            if (active[i] && nowNanos - lastActivity[i] > timeoutNanos) {
+                active[i] = false;
+                evicted++;
+            }
+        }
+    }
+
+    /**
+     * @return Bytes preallocated for message data
+     */
+    int getArenaSize() {
+        return arena.length;
+    }
+
+    synchronized long getCompletedCount() {
+        return completed;
+    }
+
+    /**
+     * @return Partial messages discarded after the timeout
+     */
+    synchronized long getEvictedCount() {
+        return evicted;
+    }
+
+    /**
+     * @return Fragments dropped because they were invalid, too large or found no free slot
+     */
+    synchronized long getDroppedCount() {
+        return dropped;
+    }
+
+    synchronized long getDuplicateCount() {
+        return duplicates;
+    }
+
+    @Override
+    public synchronized String toString() {
+        int busy = 0;
+        for (boolean slotActive : active) {
+            if (slotActive) {
+                busy++;
+            }
+        }
+        return String.format(Locale.US, "%d/%d slots busy, %d completed, %d evicted, %d dropped, %d duplicate",
+                busy, active.length, completed, evicted, dropped, duplicates);
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.myapplication;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.NetworkInterface;
+
+/**
+ * Transport used by {@link MulticastService} to receive datagrams from a multicast group.
+ * An engine is opened and read from the receiver thread only; {@link #close()} may be
+ * called from any thread to unblock a pending {@link #receive(ReceivedPacket)}.
+ */
+interface ReceiveEngine {
+
+    /**
+     * Creates the underlying socket and joins the group on the given interface.
+     *
+     * @param receiveBufferSize Requested SO_RCVBUF in bytes, or 0 to keep the OS default
+     */
+    void open(InetAddress group, int port, NetworkInterface networkInterface,
+              int receiveBufferSize) throws IOException;
+
+    /**
+     * Blocks until a datagram arrives and copies it into {@code packet}.
+     * Fills in length, sender, sender address and receive timestamp. A datagram larger
+     * than the engine's maximum datagram size is cut to that size and marked truncated.
+     */
+    void receive(ReceivedPacket packet) throws IOException;
+
+    /**
+     * @return SO_RCVBUF granted by the kernel, or 0 if the engine is not open
+     */
+    int getEffectiveReceiveBufferSize();
+
+    boolean isOpen();
+
+    /**
+     * Leaves the group and closes the socket. Safe to call more than once.
+     */
+    void close();
+
+    /**
+     * Stops delivery of datagrams from {@code source}.
+     *
+     * @throws UnsupportedOperationException if the transport has no source filtering
+     */
+    void blockSource(InetAddress source) throws IOException;
+
+    void unblockSource(InetAddress source);
+
+    ReceiveStats getStats();
+}
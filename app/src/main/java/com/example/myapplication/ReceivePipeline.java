@@ -0,0 +1,214 @@
+package com.example.myapplication;
+
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Carries packets from the receiver thread to the main thread, optionally through a
+ * pool of decode workers.
+ * <p>
+ * With workers, the receiver thread only hands each packet to the worker chosen by its
+ * sender, so packets from one sender are always processed in arrival order, and never
+ * waits: a full worker inbox drops a packet rather than blocking. Each worker runs the
+ * {@link PacketProcessor} and queues the result for delivery. Without workers the
+ * processor runs on the receiver thread itself.
+ * <p>
+ * Every queue is a single-producer/single-consumer {@link RingBuffer}: the receiver feeds
+ * one inbox per worker, each worker feeds its own delivery queue, and the main thread
+ * drains all delivery queues.
+ */
+final class ReceivePipeline {
+    private static final long WORKER_PARK_NANOS = 1_000_000L;
+    private static final int WORKER_BATCH = 32;
+
+    /**
+     * Per-packet work done before delivery. Implementations must pass the packet to
+     * {@code output}, pass other packets derived from it, or recycle it.
+     */
+    interface PacketProcessor {
+        void process(ReceivedPacket packet, Consumer<ReceivedPacket> output);
+    }
+
+    private final PacketProcessor processor;
+    private final Runnable onOutput;
+    private final int queueCapacity;
+    private final RingBuffer<ReceivedPacket>[] deliveryQueues;
+    private final Consumer<ReceivedPacket> inlineOutput;
+    private final DecodeWorker[] workers;
+    private volatile boolean running;
+
+    /**
+     * @param workerCount Number of decode worker threads, 0 to process on the receiver thread
+     * @param queueCapacity Capacity of each inbox and delivery queue
+     * @param deliveryPolicy Overflow policy of the delivery queues
+     * @param processor Work done for each packet before delivery
+     * @param onOutput Called after a packet is queued for delivery, from the producing thread
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    ReceivePipeline(int workerCount, int queueCapacity, OverflowPolicy deliveryPolicy,
+                    PacketProcessor processor, Runnable onOutput) {
+        this.processor = processor;
+        this.onOutput = onOutput;
+        this.queueCapacity = queueCapacity;
+        this.workers = new DecodeWorker[workerCount];
+        this.deliveryQueues = new RingBuffer[Math.max(1, workerCount)];
+
+        for (int i = 0; i < deliveryQueues.length; i++) {
+            deliveryQueues[i] = new RingBuffer<>(queueCapacity, deliveryPolicy, ReceivedPacket::recycle);
+        }
+        // The receiver thread must never block, so a full inbox sheds load instead
+        OverflowPolicy inboxPolicy = deliveryPolicy == OverflowPolicy.BLOCK
+                ? OverflowPolicy.DROP_OLDEST : deliveryPolicy;
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = new DecodeWorker(i, inboxPolicy, deliveryQueues[i]);
+        }
+        this.inlineOutput = workerCount == 0 ? outputTo(deliveryQueues[0]) : null;
+    }
+
+    void start() {
+        running = true;
+        for (DecodeWorker worker : workers) {
+            worker.start();
+        }
+    }
+
+    /**
+     * Stops the workers and releases any producer blocked on a full delivery queue.
+     * Packets already queued for delivery can still be drained.
+     */
+    void stop() {
+        running = false;
+        for (RingBuffer<ReceivedPacket> queue : deliveryQueues) {
+            queue.close();
+        }
+        for (DecodeWorker worker : workers) {
+            LockSupport.unpark(worker);
+        }
+        for (DecodeWorker worker : workers) {
+            try {
+                worker.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    int getWorkerCount() {
+        return workers.length;
+    }
+
+    /**
+     * Hands a packet to the pipeline. Receiver thread only.
+     */
+    void dispatch(ReceivedPacket packet) {
+        if (workers.length == 0) {
+            processor.process(packet, inlineOutput);
+            return;
+        }
+        int hash = packet.sender != null ? packet.sender.hashCode() : 0;
+        hash ^= hash >>> 16;
+        DecodeWorker worker = workers[(hash & 0x7FFFFFFF) % workers.length];
+        worker.inbox.offer(packet);
+        if (worker.waiting) {
+            LockSupport.unpark(worker);
+        }
+    }
+
+    /**
+     * Moves up to {@code max} packets that are ready for delivery to {@code consumer}.
+     * Main thread only.
+     *
+     * @return Number of packets drained
+     */
+    int drainTo(Consumer<ReceivedPacket> consumer, int max) {
+        int count = 0;
+        for (int i = 0; i < deliveryQueues.length && count < max; i++) {
+            count += deliveryQueues[i].drain(consumer, max - count);
+        }
+        return count;
+    }
+
+    boolean isEmpty() {
+        for (RingBuffer<ReceivedPacket> queue : deliveryQueues) {
+            if (!queue.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return Packets waiting in all inboxes and delivery queues
+     */
+    int size() {
+        int size = 0;
+        for (RingBuffer<ReceivedPacket> queue : deliveryQueues) {
+            size += queue.size();
+        }
+        for (DecodeWorker worker : workers) {
+            size += worker.inbox.size();
+        }
+        return size;
+    }
+
+    /**
+     * @return Total number of packets the queues can hold
+     */
+    int capacity() {
+        return queueCapacity * (deliveryQueues.length + workers.length);
+    }
+
+    /**
+     * @return Packets dropped by any inbox or delivery queue
+     */
+    long getDroppedCount() {
+        long dropped = 0;
+        for (RingBuffer<ReceivedPacket> queue : deliveryQueues) {
+            dropped += queue.getDroppedCount();
+        }
+        for (DecodeWorker worker : workers) {
+            dropped += worker.inbox.getDroppedCount();
+        }
+        return dropped;
+    }
+
+    private Consumer<ReceivedPacket> outputTo(RingBuffer<ReceivedPacket> queue) {
+        return packet -> {
+            // A dropped packet is recycled by the queue's drop handler
+            if (queue.offer(packet)) {
+                onOutput.run();
+            }
+        };
+    }
+
+    private final class DecodeWorker extends Thread {
+        final RingBuffer<ReceivedPacket> inbox;
+        final Consumer<ReceivedPacket> output;
+        final Consumer<ReceivedPacket> processStep;
+        volatile boolean waiting;
+
+        DecodeWorker(int index, OverflowPolicy inboxPolicy, RingBuffer<ReceivedPacket> deliveryQueue) {
+            super("MulticastDecoder-" + index);
+            this.inbox = new RingBuffer<>(queueCapacity, inboxPolicy, ReceivedPacket::recycle);
+            this.output = outputTo(deliveryQueue);
+            this.processStep = packet -> processor.process(packet, output);
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                if (inbox.drain(processStep, WORKER_BATCH) > 0) {
+                    continue;
+                }
+                waiting = true;
+                if (inbox.isEmpty() && running) {
+                    // Timed park bounds the latency of a wake-up lost to a racing producer
+                    LockSupport.parkNanos(this, WORKER_PARK_NANOS);
+                }
+                waiting = false;
+            }
+            // Return anything left in the inbox to the pool
+            inbox.drain(ReceivedPacket::recycle, Integer.MAX_VALUE);
+        }
+    }
+}
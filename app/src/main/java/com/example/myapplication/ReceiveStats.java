@@ -0,0 +1,55 @@
+package com.example.myapplication;
+
+import java.util.Locale;
+
+/**
+ * Counters kept by a {@link ReceiveEngine}. Written by the receiver thread only and
+ * read from any thread, so the values are approximate while traffic is flowing.
+ * Processing time covers the work between the kernel handing over a datagram
+ * and the packet being ready for delivery; time spent waiting for data is excluded.
+ */
+final class ReceiveStats {
+    private volatile long packets;
+    private volatile long bytes;
+    private volatile long processingNanos;
+    private volatile long truncated;
+
+    void record(int length, long nanos) {
+        packets++;
+        bytes += length;
+        processingNanos += nanos;
+    }
+
+    void recordTruncated() {
+        truncated++;
+    }
+
+    long getPackets() {
+        return packets;
+    }
+
+    long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return Number of datagrams larger than the maximum datagram size
+     */
+    long getTruncated() {
+        return truncated;
+    }
+
+    /**
+     * @return Average per-packet processing time in nanoseconds, 0 if nothing was received
+     */
+    long getAverageProcessingNanos() {
+        long count = packets;
+        return count == 0 ? 0 : processingNanos / count;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "%d packets, %d bytes, %d ns/packet, %d truncated",
+                getPackets(), getBytes(), getAverageProcessingNanos(), getTruncated());
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.myapplication;
+
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A pooled datagram received from the multicast group.
+ * <p>
+ * The packet is a view over the raw bytes; text and hex forms are only decoded when first
+ * asked for and then cached until the packet is recycled. Instances are owned by a
+ * {@link PacketPool} and recycled once delivered, so listeners must not hold on to them
+ * after their callback returns; reassembled messages too large for the pool have no pool
+ * and are simply dropped when recycled. Packets are not thread-safe.
+ */
+public final class ReceivedPacket {
+    final PacketPool pool;
+    final byte[] data;
+    int length;
+    InetAddress sender;
+    String senderAddress;
+    long receivedAtNanos;
+    boolean truncated;
+    // Heap buffer over data for channel receives, created on first use
+    private ByteBuffer buffer;
+
+    // Decoded forms, filled in lazily
+    private int textState = TEXT_UNKNOWN;
+    private String text;
+    private String hexString;
+    private String message;
+
+    private static final int TEXT_UNKNOWN = 0;
+    private static final int TEXT_YES = 1;
+    private static final int TEXT_NO = 2;
+
+    ReceivedPacket(PacketPool pool, int bufferSize) {
+        this.pool = pool;
+        this.data = new byte[bufferSize];
+    }
+
+    /**
+     * Creates an unpooled packet whose payload is all of {@code data}.
+     */
+    ReceivedPacket(byte[] data) {
+        this.pool = null;
+        this.data = data;
+        this.length = data.length;
+    }
+
+    /**
+     * Returns the backing buffer. Only the first {@link #getLength()} bytes are payload,
+     * and the buffer is reused once the packet is recycled.
+     */
+    public byte[] getData() {
+        return data;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * @return A cleared {@link ByteBuffer} backed by {@link #data}, reused across recycles
+     */
+    ByteBuffer buffer() {
+        if (buffer == null) {
+            buffer = ByteBuffer.wrap(data);
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * @return A copy of the payload that may outlive this packet
+     */
+    public byte[] copyPayload() {
+        return Arrays.copyOf(data, length);
+    }
+
+    public InetAddress getSender() {
+        return sender;
+    }
+
+    /**
+     * @return Textual IP address of the sender
+     */
+    public String getSenderAddress() {
+        return senderAddress;
+    }
+
+    /**
+     * @return {@link System#nanoTime()} at which the datagram was read from the socket
+     */
+    public long getReceivedAtNanos() {
+        return receivedAtNanos;
+    }
+
+    /**
+     * @return true if the datagram was larger than the maximum datagram size and was cut short
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * @return true if the payload is mostly printable UTF-8 text
+     */
+    public boolean isText() {
+        if (textState == TEXT_UNKNOWN) {
+            textState = PayloadClassifier.isText(data, 0, length) ? TEXT_YES : TEXT_NO;
+        }
+        return textState == TEXT_YES;
+    }
+
+    /**
+     * @return The payload decoded as UTF-8, whether or not it is printable
+     */
+    public String getText() {
+        if (text == null) {
+            text = new String(data, 0, length, StandardCharsets.UTF_8);
+        }
+        return text;
+    }
+
+    /**
+     * @return The payload as space-separated hex bytes, e.g. "55 AA 02 6B DA"
+     */
+    public String getHexString() {
+        if (hexString == null) {
+            hexString = HexCodec.toHexString(data, 0, length);
+        }
+        return hexString;
+    }
+
+    /**
+     * @return The payload as text, or as "[HEX] ..." when it is not printable UTF-8
+     */
+    public String getMessage() {
+        if (message == null) {
+            message = isText() ? getText() : "[HEX] " + getHexString();
+        }
+        return message;
+    }
+
+    /**
+     * Returns this packet to its pool, if any. The packet must not be used afterwards.
+     */
+    void recycle() {
+        length = 0;
+        sender = null;
+        senderAddress = null;
+        receivedAtNanos = 0L;
+        truncated = false;
+        textState = TEXT_UNKNOWN;
+        text = null;
+        hexString = null;
+        message = null;
+        if (pool != null) {
+            pool.release(this);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.myapplication;
+
+/**
+ * Keeps copies of the last {@code capacity} numbered datagrams sent, so they can be repeated
+ * when a receiver NACKs them. Slot {@code sequence & (capacity - 1)} holds a datagram
+ * until the sender wraps around to it; slot buffers are reused and only grow, so memory
+ * stays within capacity times the largest datagram sent.
+ * <p>
+ * Several receivers usually NACK the same loss; a datagram repeated within the
+ * suppression interval is not repeated again for them. Only used on the sender thread.
+ */
+final class RetransmitBuffer {
+    private final int mask;
+    private final long suppressNanos;
+    private final byte[][] datagrams;
+    private final int[] sequences;
+    private final int[] lengths;
+    private final boolean[] held;
+    private final boolean[] repeated;
+    private final long[] repeatedAt;
+
+    private volatile long retransmitted;
+    private volatile long suppressed;
+    private volatile long expired;
+
+    /**
+     * @param capacity Datagrams kept, rounded up to a power of two
+     * @param suppressNanos Time after a repeat during which NACKs for the datagram are ignored
+     */
+    RetransmitBuffer(int capacity, long suppressNanos) {
+        if (capacity <= 0 || capacity > 1 << 16) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 65536");
+        }
+        int slots = Integer.highestOneBit(capacity * 2 - 1);
+        this.mask = slots - 1;
+        this.suppressNanos = suppressNanos;
+        this.datagrams = new byte[slots][];
+        this.sequences = new int[slots];
+        this.lengths = new int[slots];
+        this.held = new boolean[slots];
+        this.repeated = new boolean[slots];
+        this.repeatedAt = new long[slots];
+    }
+
+    int capacity() {
+        return datagrams.length;
+    }
+
+    /**
+     * Keeps a copy of a datagram just sent, replacing the oldest one in its slot.
+     */
+    void store(int sequence, byte[] data, int offset, int length) {
+        int slot = sequence & mask;
+        if (datagrams[slot] == null || datagrams[slot].length < length) {
+            datagrams[slot] = new byte[length];
+        }
+        System.arraycopy(data, offset, datagrams[slot], 0, length);
+        sequences[slot] = sequence;
+        lengths[slot] = length;
+        held[slot] = true;
+        repeated[slot] = false;
+    }
+
+    /**
+     * Claims a datagram for retransmission.
+     *
+     * @return Its slot, whose contents are at {@link #data} and {@link #length}; or -1 if it
+     * is no longer held or was repeated within the suppression interval
+     */
+    int claim(int sequence, long nowNanos) {
+        int slot = sequence & mask;
+        if (!held[slot] || sequences[slot] != sequence) {
+            expired++;
+            return -1;
+        }
+        if (repeated[slot] && nowNanos - repeatedAt[slot] < suppressNanos) {
+            suppressed++;
+            return -1;
+        }
+        repeated[slot] = true;
+        repeatedAt[slot] = nowNanos;
+        retransmitted++;
+        return slot;
+    }
+
+    byte[] data(int slot) {
+        return datagrams[slot];
+    }
+
+    int length(int slot) {
+        return lengths[slot];
+    }
+
+    long getRetransmittedCount() {
+        return retransmitted;
+    }
+
+    /**
+     * @return Requests ignored because the datagram had just been repeated
+     */
+    long getSuppressedCount() {
+        return suppressed;
+    }
+
+    /**
+     * @return Requests for datagrams that had already left the buffer
+     */
+    long getExpiredCount() {
+        return expired;
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.myapplication;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Preallocated lock-free ring buffer for one producer thread and one consumer thread.
+ * <p>
+ * The producer publishes with ordered stores. The consumer claims elements by
+ * compare-and-set on the head index, because under {@link OverflowPolicy#DROP_OLDEST}
+ * the producer may also advance the head to evict the oldest element.
+ * Elements that are dropped are handed to the drop handler, e.g. to return them to a pool.
+ */
+final class RingBuffer<E> {
+    private static final long BLOCK_PARK_NANOS = 50_000L;
+
+    private final AtomicReferenceArray<E> slots;
+    private final int mask;
+    private final OverflowPolicy policy;
+    private final Consumer<? super E> dropHandler;
+
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile boolean closed;
+
+    /**
+     * @param capacity Requested capacity, rounded up to a power of two
+     * @param policy What to do when the producer finds the buffer full
+     * @param dropHandler Receives every element discarded by the overflow policy
+     */
+    RingBuffer(int capacity, OverflowPolicy policy, Consumer<? super E> dropHandler) {
+        if (capacity <= 0 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.policy = policy;
+        this.dropHandler = dropHandler;
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Adds an element. Producer thread only.
+     *
+     * @return false if {@code element} itself was dropped, true if it was queued
+     */
+    boolean offer(E element) {
+        long t = tail.get();
+        while (t - head.get() > mask) {
+            switch (policy) {
+                case DROP_NEWEST:
+                    drop(element);
+                    return false;
+                case DROP_OLDEST:
+                    long h = head.get();
+                    if (t - h > mask) {
+                        E oldest = slots.get((int) h & mask);
+                        if (head.compareAndSet(h, h + 1)) {
+                            drop(oldest);
+                        }
+                    }
+                    break;
+                case BLOCK:
+                default:
+                    if (closed) {
+                        drop(element);
+                        return false;
+                    }
+                    LockSupport.parkNanos(BLOCK_PARK_NANOS);
+                    break;
+            }
+        }
+        slots.lazySet((int) t & mask, element);
+        tail.lazySet(t + 1);
+        return true;
+    }
+
+    /**
+     * Removes up to {@code maxBatch} elements and passes them to {@code consumer}
+     * in FIFO order. Consumer thread only.
+     *
+     * @return Number of elements consumed
+     */
+    int drain(Consumer<? super E> consumer, int maxBatch) {
+        int count = 0;
+        long h = head.get();
+        while (count < maxBatch && h < tail.get()) {
+            E element = slots.get((int) h & mask);
+            if (head.compareAndSet(h, h + 1)) {
+                consumer.accept(element);
+                count++;
+                h++;
+            } else {
+                // The producer evicted the element we were about to take
+                h = head.get();
+            }
+        }
+        return count;
+    }
+
+    boolean isEmpty() {
+        return head.get() >= tail.get();
+    }
+
+    int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    /**
+     * @return Number of elements discarded by the overflow policy
+     */
+    long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Releases a producer blocked under {@link OverflowPolicy#BLOCK}; later offers
+     * to a full buffer drop the element instead of waiting.
+     */
+    void close() {
+        closed = true;
+    }
+
+    private void drop(E element) {
+        dropped.incrementAndGet();
+        if (dropHandler != null) {
+            dropHandler.accept(element);
+        }
+    }
+}
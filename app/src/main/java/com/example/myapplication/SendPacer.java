@@ -0,0 +1,97 @@
+package com.example.myapplication;
+
+import java.net.InetAddress;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Paces multicast transmission with one {@link TokenBucket} per destination group, so
+ * access points are not hit with microbursts. Also records how long packets waited.
+ */
+final class SendPacer {
+    private final Map<InetAddress, TokenBucket> buckets = new HashMap<>();
+    private int packetsPerSecond;
+    private long bytesPerSecond;
+    private int burstPackets;
+    private long burstBytes;
+
+    private long pacedPackets;
+    private long delayedPackets;
+    private long totalWaitNanos;
+    private long maxWaitNanos;
+
+    /**
+     * Sets the rate applied to every group; 0 for both rates disables pacing.
+     * Resets the buckets and the wait statistics.
+     */
+    synchronized void configure(int packetsPerSecond, long bytesPerSecond, int burstPackets, long burstBytes) {
+        if (packetsPerSecond < 0 || bytesPerSecond < 0 || burstPackets < 1 || burstBytes < 0) {
+            throw new IllegalArgumentException("Invalid pacing parameters");
+        }
+        this.packetsPerSecond = packetsPerSecond;
+        this.bytesPerSecond = bytesPerSecond;
+        this.burstPackets = burstPackets;
+        this.burstBytes = burstBytes;
+        buckets.clear();
+        pacedPackets = 0;
+        delayedPackets = 0;
+        totalWaitNanos = 0;
+        maxWaitNanos = 0;
+    }
+
+    synchronized boolean isEnabled() {
+        return packetsPerSecond > 0 || bytesPerSecond > 0;
+    }
+
+    /**
+     * Reserves transmission of one packet to {@code group}.
+     *
+     * @param now Current {@link System#nanoTime()}
+     * @return Nanoseconds to wait before sending, 0 to send immediately
+     */
+    synchronized long reserve(InetAddress group, int length, long now) {
+        if (!isEnabled()) {
+            return 0;
+        }
+        TokenBucket bucket = buckets.get(group);
+        if (bucket == null) {
+            bucket = new TokenBucket(packetsPerSecond, bytesPerSecond, burstPackets, burstBytes);
+            buckets.put(group, bucket);
+        }
+        long wait = bucket.reserve(length, now);
+
+        pacedPackets++;
+        if (wait > 0) {
+            delayedPackets++;
+            totalWaitNanos += wait;
+            maxWaitNanos = Math.max(maxWaitNanos, wait);
+        }
+        return wait;
+    }
+
+    synchronized long getDelayedPackets() {
+        return delayedPackets;
+    }
+
+    /**
+     * @return Average wait over all paced packets, including those that did not wait
+     */
+    synchronized long getAverageWaitNanos() {
+        return pacedPackets == 0 ? 0 : totalWaitNanos / pacedPackets;
+    }
+
+    synchronized long getMaxWaitNanos() {
+        return maxWaitNanos;
+    }
+
+    @Override
+    public synchronized String toString() {
+        if (!isEnabled()) {
+            return "off";
+        }
+        return String.format(Locale.US, "%d pkt/s, %d B/s, burst %d pkt/%d B; %d of %d delayed, avg %d us, max %d us",
+                packetsPerSecond, bytesPerSecond, burstPackets, burstBytes, delayedPackets, pacedPackets,
+                getAverageWaitNanos() / 1000, maxWaitNanos / 1000);
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.myapplication;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded queue of {@link SendTask}s between callers and the sender thread.
+ * <p>
+ * When the queue is full the {@link OverflowPolicy} decides: {@link OverflowPolicy#DROP_NEWEST}
+ * rejects the new task, {@link OverflowPolicy#DROP_OLDEST} rejects the oldest queued task to
+ * make room, and {@link OverflowPolicy#BLOCK} waits up to the configured timeout for space.
+ * Rejected tasks are completed with a {@link RejectedExecutionException}.
+ */
+final class SendQueue {
+    private final ArrayDeque<SendTask> tasks;
+    private final int capacity;
+    private final OverflowPolicy policy;
+    private final long blockTimeoutNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private long rejected;
+    private boolean closed;
+    private boolean wakeRequested;
+
+    SendQueue(int capacity, OverflowPolicy policy, long blockTimeoutMillis) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.tasks = new ArrayDeque<>(capacity);
+        this.capacity = capacity;
+        this.policy = policy;
+        this.blockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(blockTimeoutMillis);
+    }
+
+    /**
+     * Adds a task, applying the overflow policy if the queue is full.
+     * The task is completed with an exception if it is not queued.
+     *
+     * @return true if the task was queued
+     */
+    boolean offer(SendTask task) {
+        SendTask evicted = null;
+        Exception rejection = null;
+        lock.lock();
+        try {
+            if (!closed && tasks.size() >= capacity) {
+                switch (policy) {
+                    case DROP_OLDEST:
+                        evicted = tasks.pollFirst();
+                        rejected++;
+                        break;
+                    case BLOCK:
+                        long remaining = blockTimeoutNanos;
+                        while (!closed && tasks.size() >= capacity && remaining > 0) {
+                            remaining = notFull.awaitNanos(remaining);
+                        }
+                        if (!closed && tasks.size() >= capacity) {
+                            rejected++;
+                            rejection = new RejectedExecutionException(
+                                    "Timed out waiting for send queue space");
+                        }
+                        break;
+                    case DROP_NEWEST:
+                    default:
+                        rejected++;
+                        rejection = new RejectedExecutionException("Send queue full");
+                        break;
+                }
+            }
+            if (closed) {
+                rejection = new RejectedExecutionException("Sender stopped");
+            }
+            if (rejection == null) {
+                tasks.addLast(task);
+                notEmpty.signal();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            rejection = new RejectedExecutionException("Interrupted waiting for send queue space");
+        } finally {
+            lock.unlock();
+        }
+
+        // Complete futures outside the lock; their callbacks may run inline
+        if (evicted != null) {
+            evicted.reject(new RejectedExecutionException("Dropped to make room in the send queue"));
+        }
+        if (rejection != null) {
+            task.reject(rejection);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Waits for the next task. Sender thread only.
+     *
+     * @return The next task, or null once the queue is closed
+     */
+    SendTask take() throws InterruptedException {
+        lock.lock();
+        try {
+            while (tasks.isEmpty() && !closed) {
+                notEmpty.await();
+            }
+            SendTask task = tasks.pollFirst();
+            if (task != null) {
+                notFull.signal();
+            }
+            return task;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits up to {@code timeoutNanos} for the next task. Sender thread only.
+     *
+     * @return The next task, or null on timeout, after {@link #wakeUp()}, or once the
+     * queue is closed
+     */
+    SendTask poll(long timeoutNanos) throws InterruptedException {
+        lock.lock();
+        try {
+            long remaining = timeoutNanos;
+            while (tasks.isEmpty() && !closed && !wakeRequested && remaining > 0) {
+                remaining = notEmpty.awaitNanos(remaining);
+            }
+            wakeRequested = false;
+            SendTask task = tasks.pollFirst();
+            if (task != null) {
+                notFull.signal();
+            }
+            return task;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Makes a pending or the next {@link #poll} return early so the sender thread can pick
+     * up work that does not go through the queue.
+     */
+    void wakeUp() {
+        lock.lock();
+        try {
+            wakeRequested = true;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes the queue and rejects everything still in it.
+     */
+    void close() {
+        SendTask[] pending;
+        lock.lock();
+        try {
+            closed = true;
+            pending = tasks.toArray(new SendTask[0]);
+            tasks.clear();
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        for (SendTask task : pending) {
+            task.reject(new RejectedExecutionException("Sender stopped"));
+        }
+    }
+
+    int size() {
+        lock.lock();
+        try {
+            return tasks.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return Number of tasks rejected or dropped by the overflow policy
+     */
+    long getRejectedCount() {
+        lock.lock();
+        try {
+            return rejected;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
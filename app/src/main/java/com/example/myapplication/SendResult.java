@@ -0,0 +1,46 @@
+package com.example.myapplication;
+
+/**
+ * Outcome of a successful asynchronous send.
+ */
+public final class SendResult {
+    private final int length;
+    private final long enqueuedAtNanos;
+    private final long wireTimestampNanos;
+    private final long pacerWaitNanos;
+
+    SendResult(int length, long enqueuedAtNanos, long wireTimestampNanos, long pacerWaitNanos) {
+        this.length = length;
+        this.enqueuedAtNanos = enqueuedAtNanos;
+        this.wireTimestampNanos = wireTimestampNanos;
+        this.pacerWaitNanos = pacerWaitNanos;
+    }
+
+    /**
+     * @return Payload size in bytes
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * @return {@link System#nanoTime()} at which the datagram was handed to the kernel
+     */
+    public long getWireTimestampNanos() {
+        return wireTimestampNanos;
+    }
+
+    /**
+     * @return Time between the send call and the datagram reaching the kernel
+     */
+    public long getLatencyNanos() {
+        return wireTimestampNanos - enqueuedAtNanos;
+    }
+
+    /**
+     * @return Part of the latency spent waiting for the send pacer, 0 if not paced
+     */
+    public long getPacerWaitNanos() {
+        return pacerWaitNanos;
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.myapplication;
+
+import java.util.Locale;
+
+/**
+ * Send-throughput counters kept by a {@link MulticastSender}. Written by the sender thread
+ * only and read from any thread, so values are approximate while sending.
+ * Throughput is measured over the busy time spent inside the socket send call.
+ */
+final class SendStats {
+    private volatile long packets;
+    private volatile long bytes;
+    private volatile long failures;
+    private volatile long sendNanos;
+
+    void recordSent(int length, long nanos) {
+        packets++;
+        bytes += length;
+        sendNanos += nanos;
+    }
+
+    void recordFailure() {
+        failures++;
+    }
+
+    long getPackets() {
+        return packets;
+    }
+
+    long getBytes() {
+        return bytes;
+    }
+
+    long getFailures() {
+        return failures;
+    }
+
+    /**
+     * @return Average time per packet spent in the socket send call, 0 if nothing was sent
+     */
+    long getAverageSendNanos() {
+        long count = packets;
+        return count == 0 ? 0 : sendNanos / count;
+    }
+
+    /**
+     * @return Packets per second the socket sustained while busy, 0 if nothing was sent
+     */
+    long getPacketsPerSecond() {
+        long nanos = sendNanos;
+        return nanos == 0 ? 0 : packets * 1_000_000_000L / nanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "%d packets, %d bytes, %d failed, %d ns/packet, %d pkt/s",
+                getPackets(), getBytes(), getFailures(), getAverageSendNanos(), getPacketsPerSecond());
+    }
+}
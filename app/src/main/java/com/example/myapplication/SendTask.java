@@ -0,0 +1,20 @@
+package com.example.myapplication;
+
+/**
+ * Unit of work queued for the sender thread.
+ */
+abstract class SendTask {
+    final long enqueuedAtNanos = System.nanoTime();
+
+    /**
+     * Sends the task's payloads. Called on the sender thread.
+     */
+    abstract void execute(MulticastSender sender);
+
+    /**
+     * Completes the task without sending it.
+     *
+     * @param reason Why the task was not sent
+     */
+    abstract void reject(Exception reason);
+}
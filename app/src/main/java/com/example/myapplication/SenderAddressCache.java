@@ -0,0 +1,33 @@
+package com.example.myapplication;
+
+import java.net.InetAddress;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Caches the textual form of sender addresses so the receive loop does not call
+ * {@link InetAddress#getHostAddress()} (which builds a new String) for every datagram.
+ * Only accessed from the receiver thread.
+ */
+final class SenderAddressCache {
+    private final int maxEntries;
+    private final Map<InetAddress, String> cache;
+
+    SenderAddressCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.cache = new HashMap<>(maxEntries * 2);
+    }
+
+    String lookup(InetAddress address) {
+        String text = cache.get(address);
+        if (text == null) {
+            if (cache.size() >= maxEntries) {
+                // A flood of distinct senders - start over rather than grow without bound
+                cache.clear();
+            }
+            text = address.getHostAddress();
+            cache.put(address, text);
+        }
+        return text;
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.myapplication;
+
+/**
+ * Optional header in front of an outgoing datagram identifying its sender and position in
+ * that sender's stream:
+ * <pre>
+ * FE 'S' | sender id (4) | sequence number (4) | datagram
+ * </pre>
+ * Fields are big-endian. Sequence numbers increase by one per datagram and wrap around.
+ */
+final class SequenceCodec {
+    static final byte MARKER = (byte) 0xFE;
+    static final byte TYPE = 'S';
+    static final int HEADER_LENGTH = 10;
+    /**
+     * Body of a numbered datagram carrying nothing, sent after the last datagram of a
+     * burst so that losing the end of the burst shows up as a gap
+     */
+    static final byte[] HEARTBEAT = {MARKER, 'H'};
+
+    private SequenceCodec() {
+    }
+
+    static boolean isSequenced(byte[] data, int offset, int length) {
+        return length >= HEADER_LENGTH && data[offset] == MARKER && data[offset + 1] == TYPE;
+    }
+
+    /**
+     * @return true if the body of a numbered datagram is a {@link #HEARTBEAT}
+     */
+    static boolean isHeartbeat(byte[] data, int offset, int length) {
+        return length == HEARTBEAT.length && data[offset] == MARKER && data[offset + 1] == 'H';
+    }
+
+    static void writeHeader(byte[] out, int senderId, int sequence) {
+        out[0] = MARKER;
+        out[1] = TYPE;
+        FragmentCodec.writeInt(out, 2, senderId);
+        FragmentCodec.writeInt(out, 6, sequence);
+    }
+
+    static int senderId(byte[] data, int offset) {
+        return FragmentCodec.readInt(data, offset + 2);
+    }
+
+    static int sequence(byte[] data, int offset) {
+        return FragmentCodec.readInt(data, offset + 6);
+    }
+}
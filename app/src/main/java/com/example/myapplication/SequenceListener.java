@@ -0,0 +1,23 @@
+package com.example.myapplication;
+
+/**
+ * Told about irregularities in the sequence numbers of received datagrams, as they are
+ * detected. Called on a decode worker thread.
+ */
+public interface SequenceListener {
+    /**
+     * {@code count} datagrams starting at {@code firstMissing} were skipped: lost, or
+     * still on their way.
+     */
+    void onGap(int senderId, int firstMissing, int count);
+
+    /**
+     * A datagram from inside an earlier gap arrived late.
+     */
+    void onReorder(int senderId, int sequence);
+
+    /**
+     * A datagram was received again.
+     */
+    void onDuplicate(int senderId, int sequence);
+}
@@ -0,0 +1,271 @@
+package com.example.myapplication;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Follows the sequence numbers of every sender ({@link SequenceCodec}) and classifies each
+ * received datagram as in order, after a gap, a late arrival filling an earlier gap, or a
+ * duplicate. Per-sender state lives in parallel primitive arrays indexed by open addressing
+ * on the sender id, so tracking a datagram allocates nothing.
+ * <p>
+ * Besides the highest sequence number seen, each sender keeps a circular bitmap of the
+ * last {@value #WINDOW} numbers, which tells a late datagram from a duplicate. A number
+ * more than {@value #RESTART_DISTANCE} behind the highest is taken as the sender having
+ * restarted its stream. Sequence numbers wrap around. Thread-safe.
+ */
+final class SequenceTracker {
+    static final int WINDOW = 1024;
+    static final int RESTART_DISTANCE = 4 * WINDOW;
+    private static final int WINDOW_WORDS = WINDOW / 64;
+
+    // What record() found, reported once the lock is released
+    private static final int IN_ORDER = 0;
+    private static final int GAP = 1;
+    private static final int REORDER = 2;
+    private static final int DUPLICATE = 3;
+
+    private int[] senderIds;
+    private boolean[] used;
+    private int[] highest;
+    // WINDOW_WORDS per sender; bit (sequence % WINDOW) is set once that number arrived
+    private long[] windows;
+    private long[] received;
+    private long[] missing;
+    private long[] reordered;
+    private long[] duplicates;
+    private int size;
+
+    private long totalMissing;
+    private long totalReordered;
+    private long totalDuplicates;
+    private long restarts;
+
+    SequenceTracker(int expectedSenders) {
+        allocate(Integer.highestOneBit(Math.max(4, expectedSenders * 2 - 1)) << 1);
+    }
+
+    private void allocate(int capacity) {
+        senderIds = new int[capacity];
+        used = new boolean[capacity];
+        highest = new int[capacity];
+        windows = new long[capacity * WINDOW_WORDS];
+        received = new long[capacity];
+        missing = new long[capacity];
+        reordered = new long[capacity];
+        duplicates = new long[capacity];
+    }
+
+    /**
+     * Records one datagram, reporting any irregularity to {@code listener}. The listener
+     * is called after the tracker's lock is released, so it may block or query the tracker.
+     *
+     * @param listener Told about gaps, late arrivals and duplicates as they are seen, or null
+     * @return false if the datagram is a duplicate
+     */
+    boolean record(int senderId, int sequence, SequenceListener listener) {
+        int event = IN_ORDER;
+        int skipped = 0;
+        synchronized (this) {
+            int index = indexOf(senderId);
+            if (!used[index]) {
+                if ((size + 1) * 2 > senderIds.length) {
+                    rehash(senderIds.length * 2);
+                    index = indexOf(senderId);
+                }
+                used[index] = true;
+                senderIds[index] = senderId;
+                size++;
+                start(index, sequence);
+            } else {
+                int distance = sequence - highest[index];
+                if (distance > 0) {
+                    skipped = distance - 1;
+                    if (skipped > 0) {
+                        missing[index] += skipped;
+                        totalMissing += skipped;
+                        event = GAP;
+                    }
+                    if (distance < WINDOW) {
+                        for (int lost = highest[index] + 1; lost != sequence; lost++) {
+                            clearBit(index, lost);
+                        }
+                    } else {
+                        clearWindow(index);
+                    }
+                    setBit(index, sequence);
+                    highest[index] = sequence;
+                    received[index]++;
+                } else if (distance > -WINDOW && isSet(index, sequence)) {
+                    duplicates[index]++;
+                    totalDuplicates++;
+                    event = DUPLICATE;
+                } else if (distance < -RESTART_DISTANCE) {
+                    restarts++;
+                    start(index, sequence);
+                } else {
+                    // Late arrival from an earlier gap; beyond the window it cannot be told from a duplicate
+                    if (distance > -WINDOW) {
+                        setBit(index, sequence);
+                    }
+                    if (missing[index] > 0) {
+                        missing[index]--;
+                        totalMissing--;
+                    }
+                    reordered[index]++;
+                    totalReordered++;
+                    received[index]++;
+                    event = REORDER;
+                }
+            }
+        }
+
+        if (listener != null) {
+            switch (event) {
+                case GAP:
+                    listener.onGap(senderId, sequence - skipped, skipped);
+                    break;
+                case REORDER:
+                    listener.onReorder(senderId, sequence);
+                    break;
+                case DUPLICATE:
+                    listener.onDuplicate(senderId, sequence);
+                    break;
+                default:
+                    break;
+            }
+        }
+        return event != DUPLICATE;
+    }
+
+    private void start(int index, int sequence) {
+        highest[index] = sequence;
+        clearWindow(index);
+        setBit(index, sequence);
+        received[index]++;
+    }
+
+    private int word(int index, int sequence) {
+        return index * WINDOW_WORDS + ((sequence & (WINDOW - 1)) >>> 6);
+    }
+
+    private boolean isSet(int index, int sequence) {
+        return (windows[word(index, sequence)] & 1L << sequence) != 0;
+    }
+
+    private void setBit(int index, int sequence) {
+        windows[word(index, sequence)] |= 1L << sequence;
+    }
+
+    private void clearBit(int index, int sequence) {
+        windows[word(index, sequence)] &= ~(1L << sequence);
+    }
+
+    private void clearWindow(int index) {
+        Arrays.fill(windows, index * WINDOW_WORDS, (index + 1) * WINDOW_WORDS, 0L);
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private int indexOf(int senderId) {
+        int mask = senderIds.length - 1;
+        int index = hash(senderId) & mask;
+        while (used[index] && senderIds[index] != senderId) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldIds = senderIds;
+        boolean[] oldUsed = used;
+        int[] oldHighest = highest;
+        long[] oldWindows = windows;
+        long[] oldReceived = received;
+        long[] oldMissing = missing;
+        long[] oldReordered = reordered;
+        long[] oldDuplicates = duplicates;
+        allocate(capacity);
+        for (int i = 0; i < oldIds.length; i++) {
+            if (oldUsed[i]) {
+                int index = indexOf(oldIds[i]);
+                used[index] = true;
+                senderIds[index] = oldIds[i];
+                highest[index] = oldHighest[i];
+                System.arraycopy(oldWindows, i * WINDOW_WORDS, windows, index * WINDOW_WORDS, WINDOW_WORDS);
+                received[index] = oldReceived[i];
+                missing[index] = oldMissing[i];
+                reordered[index] = oldReordered[i];
+                duplicates[index] = oldDuplicates[i];
+            }
+        }
+    }
+
+    synchronized int getSenderCount() {
+        return size;
+    }
+
+    synchronized long getReceived(int senderId) {
+        int index = indexOf(senderId);
+        return used[index] ? received[index] : 0;
+    }
+
+    /**
+     * @return Datagrams from {@code senderId} skipped and not (yet) received late
+     */
+    synchronized long getMissing(int senderId) {
+        int index = indexOf(senderId);
+        return used[index] ? missing[index] : 0;
+    }
+
+    synchronized long getReordered(int senderId) {
+        int index = indexOf(senderId);
+        return used[index] ? reordered[index] : 0;
+    }
+
+    synchronized long getDuplicates(int senderId) {
+        int index = indexOf(senderId);
+        return used[index] ? duplicates[index] : 0;
+    }
+
+    /**
+     * @return Fraction of the datagrams sent by {@code senderId} since it was first heard
+     * that are still missing, 0-1
+     */
+    synchronized double getLossRatio(int senderId) {
+        int index = indexOf(senderId);
+        if (!used[index]) {
+            return 0;
+        }
+        long expected = received[index] + missing[index];
+        return expected > 0 ? (double) missing[index] / expected : 0;
+    }
+
+    synchronized long getTotalMissing() {
+        return totalMissing;
+    }
+
+    synchronized long getTotalReordered() {
+        return totalReordered;
+    }
+
+    synchronized long getTotalDuplicates() {
+        return totalDuplicates;
+    }
+
+    /**
+     * @return Times a sender's numbers jumped far back, taken as the sender restarting
+     */
+    synchronized long getRestartCount() {
+        return restarts;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format(Locale.US, "%d sender(s), %d missing, %d reordered, %d duplicate, %d restart(s)",
+                size, totalMissing, totalReordered, totalDuplicates, restarts);
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.myapplication;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MulticastSocket;
+import java.net.NetworkInterface;
+import java.net.SocketAddress;
+
+/**
+ * Receive engine built on the blocking {@link MulticastSocket}.
+ * The kernel copies each datagram straight into the pooled packet's byte array.
+ * Packet buffers are one byte larger than the maximum datagram size so that a
+ * datagram filling the whole buffer is known to have been truncated.
+ */
+final class SocketReceiveEngine implements ReceiveEngine {
+    private static final int MAX_CACHED_SENDERS = 256;
+
+    // Reused for every datagram; each receive points it at a pooled buffer
+    private final DatagramPacket datagram = new DatagramPacket(new byte[0], 0);
+    private final SenderAddressCache senderAddresses = new SenderAddressCache(MAX_CACHED_SENDERS);
+    private final ReceiveStats stats = new ReceiveStats();
+    private final int maxDatagramSize;
+
+    private volatile MulticastSocket socket;
+    private SocketAddress groupAddress;
+    private NetworkInterface networkInterface;
+
+    SocketReceiveEngine(int maxDatagramSize) {
+        this.maxDatagramSize = maxDatagramSize;
+    }
+
+    @Override
+    public void open(InetAddress group, int port, NetworkInterface networkInterface,
+                     int receiveBufferSize) throws IOException {
+        MulticastSocket newSocket = new MulticastSocket(port);
+        try {
+            newSocket.setReuseAddress(true);
+            if (receiveBufferSize > 0) {
+                newSocket.setReceiveBufferSize(receiveBufferSize);
+            }
+            SocketAddress address = new InetSocketAddress(group, port);
+            newSocket.joinGroup(address, networkInterface);
+            this.groupAddress = address;
+            this.networkInterface = networkInterface;
+            this.socket = newSocket;
+        } catch (IOException e) {
+            newSocket.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void receive(ReceivedPacket packet) throws IOException {
+        MulticastSocket current = socket;
+        if (current == null) {
+            throw new IOException("Socket closed");
+        }
+        datagram.setData(packet.data, 0, Math.min(packet.data.length, maxDatagramSize + 1));
+        current.receive(datagram);
+
+        long start = System.nanoTime();
+        int length = datagram.getLength();
+        if (length > maxDatagramSize) {
+            length = maxDatagramSize;
+            packet.truncated = true;
+            stats.recordTruncated();
+        }
+        packet.length = length;
+        packet.receivedAtNanos = start;
+        packet.sender = datagram.getAddress();
+        packet.senderAddress = senderAddresses.lookup(packet.sender);
+        stats.record(packet.length, System.nanoTime() - start);
+    }
+
+    @Override
+    public int getEffectiveReceiveBufferSize() {
+        MulticastSocket current = socket;
+        if (current == null) {
+            return 0;
+        }
+        try {
+            return current.getReceiveBufferSize();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        MulticastSocket current = socket;
+        return current != null && !current.isClosed();
+    }
+
+    @Override
+    public synchronized void close() {
+        MulticastSocket current = socket;
+        if (current == null) {
+            return;
+        }
+        socket = null;
+        try {
+            current.leaveGroup(groupAddress, networkInterface);
+        } catch (IOException e) {
+            // Socket is being closed anyway; the kernel drops the membership
+        }
+        current.close();
+    }
+
+    @Override
+    public void blockSource(InetAddress source) {
+        throw new UnsupportedOperationException("Source filtering requires the CHANNEL transport");
+    }
+
+    @Override
+    public void unblockSource(InetAddress source) {
+        throw new UnsupportedOperationException("Source filtering requires the CHANNEL transport");
+    }
+
+    @Override
+    public ReceiveStats getStats() {
+        return stats;
+    }
+}
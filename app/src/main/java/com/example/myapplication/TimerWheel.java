@@ -0,0 +1,114 @@
+package com.example.myapplication;
+
+import java.util.function.Consumer;
+
+/**
+ * Hashed timer wheel: timers are hashed by deadline into a ring of buckets, one bucket per
+ * tick, so scheduling is O(1) and advancing costs one bucket per elapsed tick no matter how
+ * many timers are registered. Deadlines further away than one revolution wait out the extra
+ * revolutions in their bucket.
+ * <p>
+ * Timers fire on the first {@link #advance} at or after the end of their tick, so never
+ * early and at most one tick late. Not thread-safe; owned by one thread.
+ *
+ * @param <T> Task type handed to the expiry callback
+ */
+final class TimerWheel<T> {
+
+    private static final class Timer<T> {
+        final T task;
+        long remainingRounds;
+        Timer<T> next;
+
+        Timer(T task) {
+            this.task = task;
+        }
+    }
+
+    private final long tickNanos;
+    private final long startNanos;
+    private final int mask;
+    private final Timer<T>[] buckets;
+    // Next tick to be processed, counted from startNanos
+    private long tick;
+    private int size;
+
+    /**
+     * @param tickNanos Resolution of the wheel
+     * @param wheelSize Number of buckets, rounded up to a power of two
+     * @param startNanos {@link System#nanoTime()} at which tick 0 begins
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    TimerWheel(long tickNanos, int wheelSize, long startNanos) {
+        if (tickNanos <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("Tick and wheel size must be positive");
+        }
+        int buckets = Integer.highestOneBit(wheelSize);
+        if (buckets < wheelSize) {
+            buckets <<= 1;
+        }
+        this.tickNanos = tickNanos;
+        this.startNanos = startNanos;
+        this.mask = buckets - 1;
+        this.buckets = (Timer<T>[]) new Timer[buckets];
+    }
+
+    /**
+     * Adds a timer. Deadlines in the past fire on the next tick.
+     */
+    void schedule(T task, long deadlineNanos) {
+        long target = Math.max((deadlineNanos - startNanos) / tickNanos, tick);
+        Timer<T> timer = new Timer<>(task);
+        timer.remainingRounds = (target - tick) / buckets.length;
+        int index = (int) (target & mask);
+        timer.next = buckets[index];
+        buckets[index] = timer;
+        size++;
+    }
+
+    /**
+     * Processes every tick that has ended by {@code nowNanos}, handing expired tasks to
+     * {@code expired}. The callback may schedule new timers.
+     *
+     * @return Number of tasks that expired
+     */
+    int advance(long nowNanos, Consumer<? super T> expired) {
+        int fired = 0;
+        while (nowNanos - startNanos >= (tick + 1) * tickNanos) {
+            int index = (int) (tick & mask);
+            tick++;
+            // Detach the bucket so timers scheduled by the callback are not visited now
+            Timer<T> timer = buckets[index];
+            buckets[index] = null;
+            while (timer != null) {
+                Timer<T> next = timer.next;
+                if (timer.remainingRounds <= 0) {
+                    size--;
+                    fired++;
+                    expired.accept(timer.task);
+                } else {
+                    timer.remainingRounds--;
+                    timer.next = buckets[index];
+                    buckets[index] = timer;
+                }
+                timer = next;
+            }
+        }
+        return fired;
+    }
+
+    /**
+     * @return Nanoseconds until the current tick ends and {@link #advance} has work to do
+     */
+    long nanosUntilNextTick(long nowNanos) {
+        return Math.max(0, startNanos + (tick + 1) * tickNanos - nowNanos);
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+}
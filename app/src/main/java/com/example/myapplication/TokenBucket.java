@@ -0,0 +1,66 @@
+package com.example.myapplication;
+
+/**
+ * Token bucket limiting both packet rate and byte rate, expressed in virtual time:
+ * each dimension keeps the time at which its bucket will be full again, which avoids
+ * refilling fractional tokens on every call.
+ * Not thread-safe.
+ */
+final class TokenBucket {
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final long nanosPerPacket;
+    private final double nanosPerByte;
+    private final long packetTolerance;
+    private final long byteTolerance;
+
+    // Times at which the packet and byte buckets are next completely empty of debt
+    private long packetDebtClearsAt;
+    private long byteDebtClearsAt;
+    private boolean started;
+
+    /**
+     * @param packetsPerSecond Sustained packet rate, or 0 for no packet limit
+     * @param bytesPerSecond Sustained byte rate, or 0 for no byte limit
+     * @param burstPackets Packets that may be sent back-to-back from a full bucket
+     * @param burstBytes Bytes that may be sent back-to-back from a full bucket
+     */
+    TokenBucket(int packetsPerSecond, long bytesPerSecond, int burstPackets, long burstBytes) {
+        this.nanosPerPacket = packetsPerSecond > 0 ? NANOS_PER_SECOND / packetsPerSecond : 0;
+        this.nanosPerByte = bytesPerSecond > 0 ? (double) NANOS_PER_SECOND / bytesPerSecond : 0;
+        this.packetTolerance = nanosPerPacket * Math.max(0, burstPackets - 1);
+        this.byteTolerance = (long) (nanosPerByte * Math.max(0, burstBytes));
+    }
+
+    /**
+     * Takes tokens for one packet of {@code length} bytes.
+     *
+     * @param now Current {@link System#nanoTime()}
+     * @return Nanoseconds the caller must wait before sending, 0 to send immediately
+     */
+    long reserve(int length, long now) {
+        if (!started) {
+            // nanoTime() has an arbitrary origin, so start from a full bucket at "now"
+            packetDebtClearsAt = now;
+            byteDebtClearsAt = now;
+            started = true;
+        }
+        long sendAt = now;
+        if (nanosPerPacket > 0) {
+            sendAt = Math.max(sendAt, packetDebtClearsAt - packetTolerance);
+        }
+        long byteCost = (long) (nanosPerByte * length);
+        if (byteCost > 0) {
+            // A packet larger than the burst may still go out once the bucket is full
+            sendAt = Math.max(sendAt, byteDebtClearsAt - Math.max(0, byteTolerance - byteCost));
+        }
+
+        if (nanosPerPacket > 0) {
+            packetDebtClearsAt = Math.max(packetDebtClearsAt, sendAt) + nanosPerPacket;
+        }
+        if (byteCost > 0) {
+            byteDebtClearsAt = Math.max(byteDebtClearsAt, sendAt) + byteCost;
+        }
+        return sendAt - now;
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that {@link DatagramProcessor} only reads the service's FE markers when the
+ * feature using them is turned on, and passes other datagrams through untouched.
+ */
+public class DatagramProcessorTest {
+    private final DatagramProcessor processor = new DatagramProcessor(1,
+            new NackScheduler(16, 0, 0, 1_000_000L, 1, new Random(1)), new FrameDecoder());
+    private final PacketPool pool = new PacketPool(1024, 4);
+    private final List<byte[]> delivered = new ArrayList<>();
+
+    private void receive(byte[] datagram) {
+        ReceivedPacket packet = pool.acquire();
+        System.arraycopy(datagram, 0, packet.data, 0, datagram.length);
+        packet.length = datagram.length;
+        processor.process(packet, message -> {
+            delivered.add(message.copyPayload());
+            message.recycle();
+        });
+    }
+
+    private static byte[] fragment(byte[] message) {
+        byte[] datagram = new byte[FragmentCodec.HEADER_LENGTH + message.length];
+        FragmentCodec.writeHeader(datagram, 1, 0, 1, message.length);
+        System.arraycopy(message, 0, datagram, FragmentCodec.HEADER_LENGTH, message.length);
+        return datagram;
+    }
+
+    private static byte[] bundle(byte[]... messages) {
+        MessageBundle bundle = new MessageBundle(512);
+        for (byte[] message : messages) {
+            bundle.add(message, 0, message.length);
+        }
+        return Arrays.copyOf(bundle.getBuffer(), bundle.getLength());
+    }
+
+    @Test
+    public void fragmentsPassThroughWithoutFragmentation() {
+        byte[] datagram = fragment("hello".getBytes());
+        receive(datagram);
+        assertEquals(1, delivered.size());
+        assertArrayEquals(datagram, delivered.get(0));
+    }
+
+    @Test
+    public void fragmentsAreReassembledWithFragmentation() {
+        processor.setReassembler(new Reassembler(1, 1024, 1_000_000_000L));
+        receive(fragment("hello".getBytes()));
+        assertEquals(1, delivered.size());
+        assertArrayEquals("hello".getBytes(), delivered.get(0));
+    }
+
+    @Test
+    public void bundlesPassThroughWithoutCoalescing() {
+        byte[] datagram = bundle("a".getBytes(), "bc".getBytes());
+        receive(datagram);
+        assertEquals(1, delivered.size());
+        assertArrayEquals(datagram, delivered.get(0));
+    }
+
+    @Test
+    public void bundlesAreSplitWithCoalescing() {
+        processor.setCoalescing(true);
+        receive(bundle("a".getBytes(), "bc".getBytes()));
+        assertEquals(2, delivered.size());
+        assertArrayEquals("a".getBytes(), delivered.get(0));
+        assertArrayEquals("bc".getBytes(), delivered.get(1));
+    }
+
+    @Test
+    public void escapesAreKeptWithoutMarkerFeatures() {
+        byte[] datagram = {(byte) 0xFE, 'E', 'x'};
+        receive(datagram);
+        assertArrayEquals(datagram, delivered.get(0));
+    }
+
+    @Test
+    public void escapesAreStrippedWithMarkerFeatures() {
+        processor.setSequenceNumbering(true);
+        receive(new byte[]{(byte) 0xFE, 'E', (byte) 0xFE, 'B', 0, 1, 'x'});
+        assertEquals(1, delivered.size());
+        assertArrayEquals(new byte[]{(byte) 0xFE, 'B', 0, 1, 'x'}, delivered.get(0));
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class DuplicateFilterTest {
+    private static final long AGE = 1_000_000_000L;
+
+    @Test
+    public void repeatWithinWindowIsSuppressed() {
+        DuplicateFilter filter = new DuplicateFilter(8, AGE);
+        long key = DuplicateFilter.sequenceKey(42, 7);
+        assertFalse(filter.isDuplicate(key, 0));
+        assertTrue(filter.isDuplicate(key, 10));
+        assertTrue(filter.isDuplicate(key, 20));
+        assertFalse(filter.isDuplicate(DuplicateFilter.sequenceKey(42, 8), 30));
+        assertFalse(filter.isDuplicate(DuplicateFilter.sequenceKey(43, 7), 40));
+        assertEquals(2, filter.getSuppressedCount());
+    }
+
+    @Test
+    public void payloadKeyIgnoresWhereTheBytesLive() {
+        byte[] payload = "PING".getBytes(StandardCharsets.US_ASCII);
+        byte[] relayed = new byte[10];
+        System.arraycopy(payload, 0, relayed, 3, payload.length);
+        assertEquals(DuplicateFilter.payloadKey(payload, 0, payload.length),
+                DuplicateFilter.payloadKey(relayed, 3, payload.length));
+        assertNotEquals(DuplicateFilter.payloadKey(payload, 0, 4), DuplicateFilter.payloadKey(payload, 0, 3));
+    }
+
+    @Test
+    public void oldestKeyLeavesWhenWindowIsFull() {
+        DuplicateFilter filter = new DuplicateFilter(4, AGE);
+        for (int seq = 0; seq < 5; seq++) {
+            assertFalse(filter.isDuplicate(DuplicateFilter.sequenceKey(1, seq), seq));
+        }
+        assertFalse(filter.isDuplicate(DuplicateFilter.sequenceKey(1, 0), 10));
+        assertTrue(filter.isDuplicate(DuplicateFilter.sequenceKey(1, 4), 11));
+    }
+
+    @Test
+    public void repeatAfterMaxAgeIsNew() {
+        DuplicateFilter filter = new DuplicateFilter(16, AGE);
+        long key = DuplicateFilter.sequenceKey(5, 5);
+        assertFalse(filter.isDuplicate(key, 0));
+        assertFalse(filter.isDuplicate(key, AGE + 1));
+        assertTrue(filter.isDuplicate(key, AGE + 2));
+    }
+
+    @Test
+    public void matchesAReferenceSetUnderChurn() {
+        int window = 100;
+        DuplicateFilter filter = new DuplicateFilter(window, Long.MAX_VALUE);
+        long[] recent = new long[window];
+        int next = 0;
+        Random random = new Random(3);
+        for (int i = 0; i < 100_000; i++) {
+            long key = DuplicateFilter.sequenceKey(0, random.nextInt(300));
+            boolean expected = false;
+            for (long seen : recent) {
+                expected |= seen == key;
+            }
+            assertEquals("step " + i, expected, filter.isDuplicate(key, i));
+            if (!expected) {
+                recent[next] = key;
+                next = (next + 1) % window;
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class FrameBuilderTest {
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        byte[] out = new byte[buffer.remaining()];
+        buffer.duplicate().get(out);
+        return out;
+    }
+
+    @Test
+    public void writesHeaderLengthAndChecksum() {
+        ByteBuffer frame = new FrameBuilder().begin(0x02).putByte(0x6B).putShort(0x0102).finish();
+        assertArrayEquals(new byte[]{0x55, (byte) 0xAA, 0x02, 0x03, 0x6B, 0x01, 0x02,
+                (byte) (0x02 + 0x03 + 0x6B + 0x01 + 0x02)}, bytes(frame));
+    }
+
+    @Test
+    public void checksumWrapsModulo256() {
+        ByteBuffer frame = new FrameBuilder().begin(0xFF).putInt(0xFFFFFFFF).finish();
+        byte[] out = bytes(frame);
+        int expected = (0xFF + 4 + 4 * 0xFF) & 0xFF;
+        assertEquals(expected, out[out.length - 1] & 0xFF);
+    }
+
+    @Test
+    public void beginResetsBuilder() {
+        FrameBuilder builder = new FrameBuilder();
+        builder.begin(1).putAscii("hello").finish();
+        ByteBuffer frame = builder.begin(2).putByte(9).finish();
+        assertArrayEquals(new byte[]{0x55, (byte) 0xAA, 2, 1, 9, 12}, bytes(frame));
+    }
+
+    @Test(expected = BufferOverflowException.class)
+    public void rejectsPayloadLongerThanLengthField() {
+        FrameBuilder builder = new FrameBuilder().begin(1);
+        builder.putBytes(new byte[FrameBuilder.MAX_PAYLOAD_LENGTH], 0, FrameBuilder.MAX_PAYLOAD_LENGTH);
+        builder.putByte(0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectsWritesAfterFinish() {
+        FrameBuilder builder = new FrameBuilder().begin(1);
+        builder.finish();
+        builder.putByte(0);
+    }
+
+    @Test
+    public void poolReusesBuilders() {
+        FramePool pool = new FramePool(4);
+        FrameBuilder first = pool.acquire();
+        first.recycle();
+        assertSame(first, pool.acquire());
+        assertEquals(1, pool.getCreatedCount());
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.zip.CRC32C;
+
+import static org.junit.Assert.*;
+
+public class FrameChecksumTest {
+    private static final byte[] CHECK = "123456789".getBytes(StandardCharsets.US_ASCII);
+
+    @Test
+    public void matchesStandardCheckValues() {
+        assertEquals(0xDD, FrameChecksum.SUM8.compute(CHECK, 0, CHECK.length));
+        assertEquals(0x29B1, FrameChecksum.CRC16_CCITT.compute(CHECK, 0, CHECK.length));
+        assertEquals(0xE3069283, FrameChecksum.CRC32C.compute(CHECK, 0, CHECK.length));
+    }
+
+    @Test
+    public void crc32cAgreesWithJdkForAllAlignments() {
+        Random random = new Random(42);
+        byte[] data = new byte[300];
+        random.nextBytes(data);
+        for (int offset = 0; offset < 5; offset++) {
+            for (int length = 0; length < 40; length++) {
+                CRC32C reference = new CRC32C();
+                reference.update(data, offset, length);
+                assertEquals((int) reference.getValue(), FrameChecksum.CRC32C.compute(data, offset, length));
+            }
+        }
+    }
+
+    @Test
+    public void crcsDetectSwappedBytesThatSumMisses() {
+        byte[] a = {1, 2, 3, 4};
+        byte[] b = {2, 1, 3, 4};
+        assertEquals(FrameChecksum.SUM8.compute(a, 0, 4), FrameChecksum.SUM8.compute(b, 0, 4));
+        assertNotEquals(FrameChecksum.CRC16_CCITT.compute(a, 0, 4), FrameChecksum.CRC16_CCITT.compute(b, 0, 4));
+        assertNotEquals(FrameChecksum.CRC32C.compute(a, 0, 4), FrameChecksum.CRC32C.compute(b, 0, 4));
+    }
+
+    @Test
+    public void builderAndDecoderRoundTripEveryChecksum() {
+        for (FrameChecksum checksum : FrameChecksum.values()) {
+            FrameBuilder builder = new FrameBuilder();
+            builder.setChecksum(checksum);
+            ByteBuffer frame = builder.begin(0x42).putInt(123456).putAscii("abc").finish();
+            assertEquals(FrameBuilder.HEADER_LENGTH + 7 + checksum.getWidth(), frame.limit());
+            assertEquals(7, builder.getPayloadLength());
+
+            FrameDecoder decoder = new FrameDecoder();
+            decoder.setChecksum(checksum);
+            byte[] bytes = frame.array();
+            assertEquals(checksum.name(), 1, decoder.decode(bytes, 0, frame.limit(), null, null));
+            bytes[5] ^= 0x10;
+            assertEquals(checksum.name(), 0, decoder.decode(bytes, 0, frame.limit(), null, null));
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class FrameDecoderTest {
+
+    private static byte[] concat(ByteBuffer... frames) {
+        int total = 0;
+        for (ByteBuffer frame : frames) {
+            total += frame.remaining();
+        }
+        ByteBuffer out = ByteBuffer.allocate(total);
+        for (ByteBuffer frame : frames) {
+            out.put(frame.duplicate());
+        }
+        return out.array();
+    }
+
+    @Test
+    public void splitsConcatenatedFrames() throws Exception {
+        byte[] datagram = concat(
+                new FrameBuilder().begin(0x10).putShort(0x1234).finish(),
+                new FrameBuilder().begin(0x20).finish(),
+                new FrameBuilder().begin(0x30).putInt(-2).putByte(7).finish());
+        List<String> seen = new ArrayList<>();
+        int frames = new FrameDecoder().decode(datagram, 0, datagram.length, InetAddress.getLoopbackAddress(),
+                frame -> seen.add(frame.getOpcode() + ":" + frame.getPayloadLength()));
+        assertEquals(3, frames);
+        assertEquals("[16:2, 32:0, 48:5]", seen.toString());
+    }
+
+    @Test
+    public void exposesTypedFields() {
+        byte[] datagram = concat(new FrameBuilder().begin(1).putShort(0xBEEF).putInt(0x01020304).finish());
+        new FrameDecoder().decode(datagram, 0, datagram.length, null, frame -> {
+            assertEquals(0xBEEF, frame.getShort(0));
+            assertEquals(0x01020304, frame.getInt(2));
+            assertEquals(0x04, frame.getByte(5));
+            assertArrayEquals(new byte[]{(byte) 0xBE, (byte) 0xEF, 1, 2, 3, 4}, frame.copyPayload());
+        });
+    }
+
+    @Test
+    public void countsChecksumFailuresPerSender() throws Exception {
+        InetAddress a = InetAddress.getByName("192.168.1.10");
+        InetAddress b = InetAddress.getByName("192.168.1.11");
+        byte[] datagram = concat(new FrameBuilder().begin(1).putByte(1).finish(),
+                new FrameBuilder().begin(2).putByte(2).finish());
+        datagram[5]++;  // checksum of the first frame
+        FrameDecoder decoder = new FrameDecoder();
+        int[] delivered = new int[1];
+        assertEquals(1, decoder.decode(datagram, 0, datagram.length, a, frame -> delivered[0] = frame.getOpcode()));
+        assertEquals(2, delivered[0]);
+        decoder.decode(datagram, 0, datagram.length, a, null);
+        decoder.decode(datagram, 0, datagram.length, b, null);
+
+        assertEquals(2, decoder.getChecksumFailures(a));
+        assertEquals(1, decoder.getChecksumFailures(b));
+        assertEquals(3, decoder.getTotalChecksumFailures());
+        assertEquals(2, decoder.getFailingSenderCount());
+    }
+
+    @Test
+    public void stopsAtTruncatedOrForeignData() {
+        byte[] frame = concat(new FrameBuilder().begin(1).putInt(1).finish());
+        FrameDecoder decoder = new FrameDecoder();
+        assertEquals(0, decoder.decode(frame, 0, frame.length - 1, null, null));
+        byte[] trailing = concat(new FrameBuilder().begin(1).finish(), ByteBuffer.wrap("xyz".getBytes()));
+        assertEquals(1, decoder.decode(trailing, 0, trailing.length, null, null));
+        assertEquals(2, decoder.getMalformedCount());
+    }
+
+    @Test
+    public void intLongMapCountsAndGrows() {
+        IntLongHashMap map = new IntLongHashMap(2);
+        for (int key = -50; key < 50; key++) {
+            map.addTo(key, key);
+            map.addTo(key, 1);
+        }
+        assertEquals(100, map.size());
+        assertEquals(-49, map.get(-50));
+        assertEquals(50, map.get(49));
+        assertEquals(1, map.get(0));
+        assertEquals(0, map.get(1000));
+        assertFalse(map.containsKey(1000));
+    }
+}
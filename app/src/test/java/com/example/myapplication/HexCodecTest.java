@@ -0,0 +1,65 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link HexCodec}.
+ */
+public class HexCodecTest {
+    private static final byte[] FRAME = {0x55, (byte) 0xAA, 0x02, 0x6B, (byte) 0xDA};
+
+    @Test
+    public void encodesSpaceSeparatedUppercase() {
+        assertEquals("55 AA 02 6B DA", HexCodec.toHexString(FRAME, 0, FRAME.length));
+        assertEquals("AA 02", HexCodec.toHexString(FRAME, 1, 2));
+        assertEquals("", HexCodec.toHexString(FRAME, 0, 0));
+    }
+
+    @Test
+    public void encodesWithoutSeparator() {
+        assertEquals("55AA026BDA",
+                HexCodec.toHexString(FRAME, 0, FRAME.length, HexCodec.NO_SEPARATOR, HexCodec.NO_WRAP));
+    }
+
+    @Test
+    public void wrapsLines() {
+        assertEquals("55:AA\n02:6B\nDA", HexCodec.toHexString(FRAME, 0, FRAME.length, ':', 2));
+        assertEquals("55AA\n026B\nDA",
+                HexCodec.toHexString(FRAME, 0, FRAME.length, HexCodec.NO_SEPARATOR, 2));
+    }
+
+    @Test
+    public void encodedLengthMatchesOutput() {
+        char[][] separators = {{' '}, {HexCodec.NO_SEPARATOR}};
+        for (char[] separator : separators) {
+            for (int wrap = 0; wrap <= 6; wrap++) {
+                for (int length = 0; length <= FRAME.length; length++) {
+                    char[] dst = new char[64];
+                    int written = HexCodec.encode(FRAME, 0, length, dst, 0, separator[0], wrap);
+                    assertEquals(HexCodec.encodedLength(length, separator[0], wrap), written);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void appendsToReusedBuilder() {
+        StringBuilder out = new StringBuilder("[HEX] ");
+        HexCodec.appendHex(out, FRAME, 0, 2, ' ', HexCodec.NO_WRAP);
+        assertEquals("[HEX] 55 AA", out.toString());
+    }
+
+    @Test
+    public void encodesAllByteValues() {
+        byte[] all = new byte[256];
+        for (int i = 0; i < all.length; i++) {
+            all[i] = (byte) i;
+        }
+        String hex = HexCodec.toHexString(all, 0, all.length);
+        for (int i = 0; i < all.length; i++) {
+            assertEquals(String.format("%02X", i), hex.substring(i * 3, i * 3 + 2));
+        }
+    }
+}
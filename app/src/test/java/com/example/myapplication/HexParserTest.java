@@ -0,0 +1,63 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class HexParserTest {
+    private static final byte[] FRAME = {0x55, (byte) 0xAA, 0x02, 0x6B, (byte) 0xDA};
+
+    @Test
+    public void parsesSpaceSeparatedAndCompactHex() {
+        HexParser parser = new HexParser();
+        assertTrue(parser.parse("55 AA 02 6B DA"));
+        assertArrayEquals(FRAME, parser.toByteArray());
+        assertTrue(parser.parse("55aa026bda"));
+        assertArrayEquals(FRAME, parser.toByteArray());
+        assertTrue(parser.parse("  55AA\n02 6bDA\t"));
+        assertArrayEquals(FRAME, parser.toByteArray());
+    }
+
+    @Test
+    public void singleDigitTokensAreBytes() {
+        HexParser parser = new HexParser();
+        assertTrue(parser.parse("5 A 0F"));
+        assertArrayEquals(new byte[]{0x05, 0x0A, 0x0F}, parser.toByteArray());
+    }
+
+    @Test
+    public void reportsPositionOfInvalidCharacter() {
+        HexParser parser = new HexParser();
+        assertFalse(parser.parse("55 AA 0G"));
+        assertEquals(7, parser.getErrorIndex());
+        assertEquals("Invalid hex character 'G' at position 8", parser.getErrorMessage());
+        assertEquals(0, parser.getLength());
+    }
+
+    @Test
+    public void reportsStartOfOddLengthToken() {
+        HexParser parser = new HexParser();
+        assertFalse(parser.parse("55 AA026"));
+        assertEquals(3, parser.getErrorIndex());
+    }
+
+    @Test
+    public void rejectsBlankInput() {
+        HexParser parser = new HexParser();
+        assertFalse(parser.parse("   "));
+        assertFalse(parser.parse(""));
+    }
+
+    @Test
+    public void roundTripsEncoder() {
+        byte[] all = new byte[256];
+        for (int i = 0; i < all.length; i++) {
+            all[i] = (byte) i;
+        }
+        HexParser parser = new HexParser();
+        assertTrue(parser.parse(HexCodec.toHexString(all, 0, all.length)));
+        assertArrayEquals(all, parser.toByteArray());
+        assertTrue(parser.parse(HexCodec.toHexString(all, 0, all.length, HexCodec.NO_SEPARATOR, 16)));
+        assertArrayEquals(all, parser.toByteArray());
+    }
+}
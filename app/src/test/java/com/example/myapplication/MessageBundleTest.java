@@ -0,0 +1,54 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class MessageBundleTest {
+
+    @Test
+    public void packsMessagesWithLengthPrefixes() {
+        MessageBundle bundle = new MessageBundle(64);
+        bundle.add(new byte[]{1, 2, 3}, 0, 3);
+        bundle.add(new byte[]{9, 4, 5}, 1, 2);
+        byte[] datagram = Arrays.copyOf(bundle.getBuffer(), bundle.getLength());
+        assertArrayEquals(new byte[]{(byte) 0xFE, 'B', 0, 3, 1, 2, 3, 0, 2, 4, 5}, datagram);
+        assertEquals(2, MessageBundle.countMessages(datagram, 0, datagram.length));
+    }
+
+    @Test
+    public void fillsUpToMtu() {
+        MessageBundle bundle = new MessageBundle(20);
+        byte[] message = new byte[6];
+        assertTrue(bundle.fits(6));
+        bundle.add(message, 0, 6);
+        bundle.add(message, 0, 6);
+        assertEquals(18, bundle.getLength());
+        assertFalse(bundle.fits(1));
+        assertTrue(bundle.fits(0));
+        assertEquals(16, bundle.maxMessageLength());
+    }
+
+    @Test
+    public void clearStartsOver() {
+        MessageBundle bundle = new MessageBundle(20);
+        bundle.add(new byte[8], 0, 8);
+        bundle.clear();
+        assertTrue(bundle.isEmpty());
+        assertEquals(MessageBundle.HEADER_LENGTH, bundle.getLength());
+    }
+
+    @Test
+    public void rejectsDatagramsThatAreNotBundles() {
+        byte[] plain = "hello".getBytes();
+        assertEquals(-1, MessageBundle.countMessages(plain, 0, plain.length));
+        // Marker only, no messages
+        assertEquals(-1, MessageBundle.countMessages(new byte[]{(byte) 0xFE, 'B'}, 0, 2));
+        // Length field runs past the end
+        assertEquals(-1, MessageBundle.countMessages(new byte[]{(byte) 0xFE, 'B', 0, 5, 1}, 0, 5));
+        // Trailing byte that is not a whole entry
+        assertEquals(-1, MessageBundle.countMessages(new byte[]{(byte) 0xFE, 'B', 0, 1, 7, 0}, 0, 6));
+    }
+}
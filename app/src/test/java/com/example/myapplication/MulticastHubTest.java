@@ -0,0 +1,184 @@
+package com.example.myapplication;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MulticastSocket;
+import java.net.NetworkInterface;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Loopback tests for {@link MulticastHub}; skipped where the loopback interface cannot
+ * carry multicast.
+ */
+public class MulticastHubTest {
+    private static final int QUIET_MESSAGES = 20;
+
+    private NetworkInterface loopback;
+    private MulticastHub hub;
+    private MulticastSocket socket;
+    private final AtomicBoolean flooding = new AtomicBoolean(true);
+    private Thread flooder;
+
+    @Before
+    public void setUp() throws Exception {
+        loopback = NetworkInterface.getByInetAddress(InetAddress.getLoopbackAddress());
+        Assume.assumeNotNull(loopback);
+        socket = new MulticastSocket();
+        socket.setNetworkInterface(loopback);
+        Assume.assumeTrue(loopbackCarriesMulticast());
+        hub = new MulticastHub(2048);
+        hub.start();
+    }
+
+    /** Interfaces do not reliably advertise multicast support, so try it. */
+    private boolean loopbackCarriesMulticast() throws IOException {
+        InetAddress group = InetAddress.getByName("239.255.42.99");
+        try (MulticastSocket probe = new MulticastSocket(45199)) {
+            probe.joinGroup(new InetSocketAddress(group, 45199), loopback);
+            probe.setSoTimeout(1000);
+            socket.send(new DatagramPacket(new byte[1], 1, group, 45199));
+            probe.receive(new DatagramPacket(new byte[1], 1));
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        flooding.set(false);
+        if (flooder != null) {
+            flooder.join();
+        }
+        if (hub != null) {
+            hub.stop();
+        }
+        if (socket != null) {
+            socket.close();
+        }
+    }
+
+    @Test(timeout = 20_000)
+    public void floodedGroupDoesNotStarveOthers() throws Exception {
+        InetAddress floodGroup = InetAddress.getByName("239.255.42.1");
+        InetAddress quietGroup = InetAddress.getByName("239.255.42.2");
+        AtomicInteger flooded = new AtomicInteger();
+        // Slower than the flooder can send, so its socket never runs dry
+        hub.subscribe(floodGroup, 45101, loopback, listener((data, length) -> {
+            flooded.incrementAndGet();
+            long until = System.nanoTime() + 50_000;
+            while (System.nanoTime() < until) {
+                Thread.onSpinWait();
+            }
+        }));
+        CountDownLatch quiet = new CountDownLatch(QUIET_MESSAGES);
+        hub.subscribe(quietGroup, 45102, loopback, listener((data, length) -> quiet.countDown()));
+        Thread.sleep(100);
+
+        startFlood(floodGroup, 45101);
+        while (flooded.get() < 1000) {
+            Thread.sleep(10);
+        }
+        sendQuiet(quietGroup, 45102);
+
+        assertTrue("Quiet group starved", quiet.await(5, TimeUnit.SECONDS));
+        assertTrue(flooding.get());
+    }
+
+    @Test(timeout = 20_000)
+    public void failingListenerDoesNotStopTheHub() throws Exception {
+        InetAddress failingGroup = InetAddress.getByName("239.255.42.3");
+        InetAddress quietGroup = InetAddress.getByName("239.255.42.4");
+        AtomicInteger failures = new AtomicInteger();
+        hub.subscribe(failingGroup, 45103, loopback, listener((data, length) -> {
+            failures.incrementAndGet();
+            throw new IllegalStateException("listener bug");
+        }));
+        CountDownLatch quiet = new CountDownLatch(QUIET_MESSAGES);
+        hub.subscribe(quietGroup, 45104, loopback, listener((data, length) -> quiet.countDown()));
+        Thread.sleep(100);
+
+        startFlood(failingGroup, 45103);
+        while (failures.get() < 100) {
+            Thread.sleep(10);
+        }
+        sendQuiet(quietGroup, 45104);
+
+        assertTrue("Hub stopped delivering", quiet.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void stopClosesEverySubscription() throws Exception {
+        MulticastHub.Subscription first = hub.subscribe(InetAddress.getByName("239.255.42.6"), 45106,
+                loopback, listener((data, length) -> { }));
+        MulticastHub.Subscription second = hub.subscribe(InetAddress.getByName("239.255.42.7"), 45107,
+                loopback, listener((data, length) -> { }));
+        Thread.sleep(100);
+        hub.stop();
+        assertFalse(first.isOpen());
+        assertFalse(second.isOpen());
+    }
+
+    @Test
+    public void subscribeAfterStopIsRejected() throws Exception {
+        hub.stop();
+        try {
+            hub.subscribe(InetAddress.getByName("239.255.42.5"), 45105, loopback, listener((data, length) -> { }));
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    private interface Payload {
+        void accept(byte[] data, int length);
+    }
+
+    private static MulticastHub.DatagramListener listener(Payload payload) {
+        return new MulticastHub.DatagramListener() {
+            @Override
+            public void onDatagram(MulticastHub.Subscription subscription, byte[] data, int length,
+                                   String senderAddress) {
+                payload.accept(data, length);
+            }
+
+            @Override
+            public void onError(MulticastHub.Subscription subscription, IOException error) {
+            }
+        };
+    }
+
+    private void startFlood(InetAddress group, int port) {
+        flooder = new Thread(() -> {
+            try (MulticastSocket out = new MulticastSocket()) {
+                out.setNetworkInterface(loopback);
+                DatagramPacket datagram = new DatagramPacket(new byte[64], 64, group, port);
+                while (flooding.get()) {
+                    out.send(datagram);
+                }
+            } catch (IOException e) {
+                flooding.set(false);
+            }
+        });
+        flooder.start();
+    }
+
+    private void sendQuiet(InetAddress group, int port) throws IOException, InterruptedException {
+        byte[] data = new byte[16];
+        for (int i = 0; i < QUIET_MESSAGES; i++) {
+            socket.send(new DatagramPacket(data, data.length, group, port));
+            Thread.sleep(5);
+        }
+    }
+}
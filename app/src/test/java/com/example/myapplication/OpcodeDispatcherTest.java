@@ -0,0 +1,64 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class OpcodeDispatcherTest {
+
+    private static void dispatch(OpcodeDispatcher dispatcher, int opcode) {
+        ByteBuffer frame = new FrameBuilder().begin(opcode).putByte(opcode).finish();
+        new FrameDecoder().decode(frame.array(), 0, frame.limit(), null, dispatcher);
+    }
+
+    @Test
+    public void routesByOpcodeAndCounts() {
+        OpcodeDispatcher dispatcher = new OpcodeDispatcher();
+        List<String> calls = new ArrayList<>();
+        dispatcher.register(0x01, frame -> calls.add("one"));
+        dispatcher.register(0xFF, frame -> calls.add("ff:" + frame.getByte(0)));
+
+        dispatch(dispatcher, 0x01);
+        dispatch(dispatcher, 0xFF);
+        dispatch(dispatcher, 0x01);
+
+        assertEquals("[one, ff:255, one]", calls.toString());
+        assertEquals(2, dispatcher.getHitCount(0x01));
+        assertEquals(1, dispatcher.getHitCount(0xFF));
+        assertEquals(0, dispatcher.getHitCount(0x02));
+    }
+
+    @Test
+    public void unhandledOpcodesGoToFallback() {
+        OpcodeDispatcher dispatcher = new OpcodeDispatcher();
+        int[] fallbackOpcode = {-1};
+        dispatch(dispatcher, 7);
+        dispatcher.setFallback(frame -> fallbackOpcode[0] = frame.getOpcode());
+        dispatch(dispatcher, 9);
+
+        assertEquals(9, fallbackOpcode[0]);
+        assertEquals(2, dispatcher.getUnhandledCount());
+        assertEquals(1, dispatcher.getHitCount(7));
+    }
+
+    @Test
+    public void handlerExceptionsAreCountedAndContained() {
+        OpcodeDispatcher dispatcher = new OpcodeDispatcher();
+        dispatcher.register(3, frame -> {
+            throw new IllegalStateException("boom");
+        });
+        dispatch(dispatcher, 3);
+        assertEquals(1, dispatcher.getFailureCount(3));
+        assertNotNull(dispatcher.unregister(3));
+        assertFalse(dispatcher.hasHandler(3));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsOpcodesOutsideByteRange() {
+        new OpcodeDispatcher().register(256, frame -> { });
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.myapplication;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.NetworkInterface;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the pooled receive buffers used by {@link MulticastService}.
+ */
+public class PacketPoolTest {
+
+    @Test
+    public void releasedPacketsAreReused() {
+        PacketPool pool = new PacketPool(1024, 4);
+        ReceivedPacket first = pool.acquire();
+        first.recycle();
+
+        ReceivedPacket second = pool.acquire();
+        assertSame(first, second);
+        assertSame(first.data, second.data);
+        assertEquals(1, pool.getCreatedCount());
+    }
+
+    @Test
+    public void poolGrowsOnDemandAndCapsIdlePackets() {
+        PacketPool pool = new PacketPool(64, 2);
+        ReceivedPacket a = pool.acquire();
+        ReceivedPacket b = pool.acquire();
+        ReceivedPacket c = pool.acquire();
+        assertEquals(3, pool.getCreatedCount());
+
+        a.recycle();
+        b.recycle();
+        c.recycle();
+        assertEquals(2, pool.getIdleCount());
+    }
+
+    @Test
+    public void recycleClearsPacketState() throws Exception {
+        PacketPool pool = new PacketPool(64, 2);
+        ReceivedPacket packet = pool.acquire();
+        packet.length = 10;
+        packet.sender = InetAddress.getLoopbackAddress();
+        packet.senderAddress = "127.0.0.1";
+        packet.recycle();
+
+        assertEquals(0, packet.length);
+        assertNull(packet.sender);
+        assertNull(packet.senderAddress);
+    }
+
+    @Test(timeout = 30_000)
+    public void steadyStateLoopbackReceiveDoesNotAllocate() throws Exception {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+        NetworkInterface loopback = NetworkInterface.getByInetAddress(InetAddress.getLoopbackAddress());
+        Assume.assumeNotNull(loopback);
+
+        int port;
+        try (DatagramSocket probe = new DatagramSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        SocketReceiveEngine engine = new SocketReceiveEngine(1024);
+        engine.open(InetAddress.getByName("239.255.42.99"), port, loopback, 1 << 20);
+        PacketPool pool = new PacketPool(1024 + 1, 8);
+        ReceivePipeline pipeline = new ReceivePipeline(0, 16, OverflowPolicy.DROP_OLDEST,
+                (packet, output) -> output.accept(packet), () -> { });
+        pipeline.start();
+        Consumer<ReceivedPacket> consumer = ReceivedPacket::recycle;
+
+        // The engine is bound to the wildcard address, so unicast to loopback reaches it too
+        AtomicBoolean sending = new AtomicBoolean(true);
+        Thread sender = new Thread(() -> {
+            try (DatagramSocket socket = new DatagramSocket()) {
+                DatagramPacket datagram = new DatagramPacket(new byte[100], 100,
+                        InetAddress.getLoopbackAddress(), port);
+                while (sending.get()) {
+                    socket.send(datagram);
+                }
+            } catch (IOException ignored) {
+            }
+        });
+        sender.start();
+        try {
+            // Warm up so the pool, address cache, socket and JIT reach steady state
+            receive(engine, pool, pipeline, consumer, 20_000);
+
+            long threadId = Thread.currentThread().getId();
+            long before = threads.getThreadAllocatedBytes(threadId);
+            receive(engine, pool, pipeline, consumer, 10_000);
+            long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+            assertEquals(1, pool.getCreatedCount());
+            // Allow slack for the measurement call itself; a per-packet allocation would be >= 160 KB
+            assertTrue("Allocated " + allocated + " bytes", allocated < 1024);
+        } finally {
+            sending.set(false);
+            sender.join();
+            engine.close();
+            pipeline.stop();
+        }
+    }
+
+    /** Runs the receiver thread's per-datagram work and the main-thread drain, inline. */
+    private static void receive(ReceiveEngine engine, PacketPool pool, ReceivePipeline pipeline,
+                                Consumer<ReceivedPacket> consumer, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            ReceivedPacket packet = pool.acquire();
+            engine.receive(packet);
+            pipeline.dispatch(packet);
+            pipeline.drainTo(consumer, 64);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link PayloadClassifier}.
+ */
+public class PayloadClassifierTest {
+
+    @Test
+    public void asciiTextIsText() {
+        assertTrue(isText("Hello multicast\r\n\tworld"));
+        assertTrue(isText(""));
+    }
+
+    @Test
+    public void binaryFrameIsNotText() {
+        byte[] frame = {0x55, (byte) 0xAA, 0x02, 0x6B, (byte) 0xDA, 0x00, 0x01};
+        assertFalse(PayloadClassifier.isText(frame, 0, frame.length));
+    }
+
+    @Test
+    public void multiByteUtf8CountsAsPrintable() {
+        assertTrue(isText("数据不符合要求"));
+        assertTrue(isText("Grüße aus Köln"));
+        assertTrue(isText("emoji 😀 ok"));
+    }
+
+    @Test
+    public void threshold80Percent() {
+        // 4 printable + 1 control = exactly 80%
+        assertTrue(PayloadClassifier.isText(new byte[]{'a', 'b', 'c', 'd', 0x01}, 0, 5));
+        // 3 printable + 1 control = 75%
+        assertFalse(PayloadClassifier.isText(new byte[]{'a', 'b', 'c', 0x01}, 0, 4));
+    }
+
+    @Test
+    public void malformedSequencesAreNotPrintable() {
+        // Overlong encoding of '/', a lone continuation byte, an encoded surrogate
+        assertFalse(PayloadClassifier.isText(new byte[]{(byte) 0xC0, (byte) 0xAF}, 0, 2));
+        assertFalse(PayloadClassifier.isText(new byte[]{(byte) 0x80}, 0, 1));
+        assertFalse(PayloadClassifier.isText(new byte[]{(byte) 0xED, (byte) 0xA0, (byte) 0x80}, 0, 3));
+        // Truncated three-byte sequence at the end of the range
+        assertFalse(PayloadClassifier.isText(new byte[]{(byte) 0xE6, (byte) 0x95}, 0, 2));
+    }
+
+    @Test
+    public void respectsOffsetAndLength() {
+        byte[] bytes = {0x00, 0x00, 'o', 'k', 0x00};
+        assertTrue(PayloadClassifier.isText(bytes, 2, 2));
+        assertFalse(PayloadClassifier.isText(bytes, 0, 3));
+    }
+
+    @Test
+    public void agreesWithStringDecodingForAsciiAndRandomBinary() {
+        Random random = new Random(42);
+        for (int n = 0; n < 2_000; n++) {
+            byte[] bytes = new byte[1 + random.nextInt(64)];
+            for (int i = 0; i < bytes.length; i++) {
+                // Mix of printable ASCII and control bytes
+                bytes[i] = (byte) (random.nextInt(10) == 0 ? random.nextInt(32) : 32 + random.nextInt(95));
+            }
+            assertEquals(legacyIsText(bytes), PayloadClassifier.isText(bytes, 0, bytes.length));
+        }
+    }
+
+    private static boolean isText(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        return PayloadClassifier.isText(bytes, 0, bytes.length);
+    }
+
+    /** The String-based check this classifier replaced. */
+    private static boolean legacyIsText(byte[] bytes) {
+        String test = new String(bytes, StandardCharsets.UTF_8);
+        int printableCount = 0;
+        for (char c : test.toCharArray()) {
+            if (c >= 32 && c < 127 || c == '\n' || c == '\r' || c == '\t') {
+                printableCount++;
+            }
+        }
+        return printableCount >= (test.length() * 0.8);
+    }
+}
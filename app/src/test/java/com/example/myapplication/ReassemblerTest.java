@@ -0,0 +1,112 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ReassemblerTest {
+    private static final int FRAGMENT_SIZE = 64;
+    private static final long TIMEOUT = 1000;
+
+    /** Splits a message the way MulticastSender.FragmentedSend does */
+    private static List<byte[]> fragment(byte[] message, int messageId) {
+        int chunk = FRAGMENT_SIZE - FragmentCodec.HEADER_LENGTH;
+        int count = FragmentCodec.fragmentCount(message.length, FRAGMENT_SIZE);
+        List<byte[]> fragments = new ArrayList<>();
+        for (int index = 0; index < count; index++) {
+            int length = Math.min(chunk, message.length - index * chunk);
+            byte[] datagram = new byte[FragmentCodec.HEADER_LENGTH + length];
+            FragmentCodec.writeHeader(datagram, messageId, index, count, message.length);
+            System.arraycopy(message, index * chunk, datagram, FragmentCodec.HEADER_LENGTH, length);
+            fragments.add(datagram);
+        }
+        return fragments;
+    }
+
+    private static byte[] message(int length, long seed) {
+        byte[] message = new byte[length];
+        new Random(seed).nextBytes(message);
+        return message;
+    }
+
+    private final List<byte[]> completed = new ArrayList<>();
+
+    private void offer(Reassembler reassembler, int sender, byte[] fragment, long now) {
+        byte[] message = reassembler.offer(sender, fragment, 0, fragment.length, now);
+        if (message != null) {
+            completed.add(message);
+        }
+    }
+
+    private void offerAll(Reassembler reassembler, int sender, List<byte[]> fragments, long now) {
+        for (byte[] fragment : fragments) {
+            offer(reassembler, sender, fragment, now);
+        }
+    }
+
+    @Test
+    public void reassemblesShuffledFragments() {
+        byte[] original = message(1000, 1);
+        List<byte[]> fragments = fragment(original, 7);
+        Collections.shuffle(fragments, new Random(2));
+
+        Reassembler reassembler = new Reassembler(2, 4096, TIMEOUT);
+        offerAll(reassembler, 1, fragments, 0);
+
+        assertEquals(1, completed.size());
+        assertArrayEquals(original, completed.get(0));
+    }
+
+    @Test
+    public void interleavesSendersAndIgnoresDuplicates() {
+        byte[] a = message(300, 3);
+        byte[] b = message(333, 4);
+        List<byte[]> fa = fragment(a, 1);
+        List<byte[]> fb = fragment(b, 1);
+        Reassembler reassembler = new Reassembler(2, 4096, TIMEOUT);
+        for (int i = 0; i < Math.max(fa.size(), fb.size()); i++) {
+            if (i < fa.size()) {
+                offer(reassembler, 10, fa.get(i), i);
+                offer(reassembler, 10, fa.get(i), i);
+            }
+            if (i < fb.size()) {
+                offer(reassembler, 20, fb.get(i), i);
+            }
+        }
+        assertEquals(2, completed.size());
+        assertArrayEquals(a, completed.get(0));
+        assertArrayEquals(b, completed.get(1));
+        assertEquals(fa.size(), reassembler.getDuplicateCount());
+    }
+
+    @Test
+    public void dropsMessagesLargerThanASlot() {
+        Reassembler reassembler = new Reassembler(1, 500, TIMEOUT);
+        offerAll(reassembler, 1, fragment(message(501, 5), 1), 0);
+        assertTrue(completed.isEmpty());
+        assertEquals(FragmentCodec.fragmentCount(501, FRAGMENT_SIZE), reassembler.getDroppedCount());
+    }
+
+    @Test
+    public void evictsStalledTransferAfterTimeout() {
+        Reassembler reassembler = new Reassembler(1, 4096, TIMEOUT);
+        List<byte[]> stalled = fragment(message(500, 6), 1);
+        offerAll(reassembler, 1, stalled.subList(0, 3), 0);
+
+        // The only slot is busy, so a second transfer is turned away...
+        byte[] next = message(200, 7);
+        offerAll(reassembler, 2, fragment(next, 1), 10);
+        assertTrue(completed.isEmpty());
+
+        // ...until the stalled one times out
+        offerAll(reassembler, 2, fragment(next, 1), TIMEOUT + 1);
+        assertEquals(1, reassembler.getEvictedCount());
+        assertEquals(1, completed.size());
+        assertArrayEquals(next, completed.get(0));
+    }
+}
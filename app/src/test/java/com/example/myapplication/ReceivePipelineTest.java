@@ -0,0 +1,84 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link ReceivePipeline}.
+ */
+public class ReceivePipelineTest {
+
+    @Test
+    public void inlineModeProcessesOnCallingThread() {
+        List<Thread> processingThreads = new ArrayList<>();
+        ReceivePipeline pipeline = new ReceivePipeline(0, 8, OverflowPolicy.DROP_OLDEST,
+                (packet, output) -> {
+                    processingThreads.add(Thread.currentThread());
+                    output.accept(packet);
+                }, () -> { });
+        pipeline.start();
+
+        PacketPool pool = new PacketPool(16, 8);
+        pipeline.dispatch(pool.acquire());
+        List<ReceivedPacket> delivered = new ArrayList<>();
+        pipeline.drainTo(delivered::add, 8);
+        pipeline.stop();
+
+        assertEquals(1, delivered.size());
+        assertEquals(Thread.currentThread(), processingThreads.get(0));
+    }
+
+    @Test
+    public void workersPreservePerSenderOrder() throws Exception {
+        final int senders = 8;
+        final int perSender = 2_000;
+        ReceivePipeline pipeline = new ReceivePipeline(3, 8192, OverflowPolicy.BLOCK,
+                (packet, output) -> output.accept(packet), () -> { });
+        pipeline.start();
+
+        PacketPool pool = new PacketPool(4, 64);
+        InetAddress[] addresses = new InetAddress[senders];
+        for (int s = 0; s < senders; s++) {
+            addresses[s] = InetAddress.getByAddress(new byte[]{10, 0, 0, (byte) (s + 1)});
+        }
+
+        Map<InetAddress, Integer> lastSeen = new HashMap<>();
+        int[] delivered = {0};
+        boolean[] ordered = {true};
+        for (int i = 0; i < perSender; i++) {
+            for (int s = 0; s < senders; s++) {
+                ReceivedPacket packet = pool.acquire();
+                packet.sender = addresses[s];
+                packet.data[0] = (byte) (i >> 8);
+                packet.data[1] = (byte) i;
+                packet.length = 2;
+                pipeline.dispatch(packet);
+            }
+        }
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (delivered[0] < senders * perSender && System.currentTimeMillis() < deadline) {
+            pipeline.drainTo(packet -> {
+                int sequence = ((packet.data[0] & 0xFF) << 8) | (packet.data[1] & 0xFF);
+                Integer previous = lastSeen.put(packet.sender, sequence);
+                if (previous != null && previous >= sequence) {
+                    ordered[0] = false;
+                }
+                delivered[0]++;
+                packet.recycle();
+            }, 1024);
+        }
+        pipeline.stop();
+
+        assertTrue(ordered[0]);
+        assertEquals(senders * perSender, delivered[0] + pipeline.getDroppedCount());
+        assertEquals(0, pipeline.getDroppedCount());
+    }
+}
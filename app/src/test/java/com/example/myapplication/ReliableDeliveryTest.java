@@ -0,0 +1,278 @@
+package com.example.myapplication;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MulticastSocket;
+import java.net.NetworkInterface;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs reliable delivery between two nodes over loopback multicast, each a real
+ * {@link MulticastSender} and a {@link SocketReceiveEngine} feeding a
+ * {@link DatagramProcessor}, the way {@link MulticastService} wires them. Skipped where
+ * the loopback interface cannot carry multicast.
+ */
+public class ReliableDeliveryTest {
+    private static final long MS = 1_000_000L;
+    private static final int SOURCE_ID = 0x5E4D;
+    private static final int RECEIVER_ID = 0x7A11;
+    private static final int MESSAGES = 50;
+    private static final int MAX_DATAGRAM = 1024;
+    // First transmissions the receiver loses, including the last message of the burst
+    private static final Set<Integer> LOST = Set.of(3, 10, 11, 12, MESSAGES - 1);
+
+    private NetworkInterface loopback;
+    private InetAddress group;
+    private int port;
+    private final List<Node> nodes = new ArrayList<>();
+
+    // Receiver thread of the receiving node only
+    private final Map<Integer, Integer> arrivals = new ConcurrentHashMap<>();
+    // Receiver thread of the source node only
+    private final Set<Integer> nacked = ConcurrentHashMap.newKeySet();
+
+    /**
+     * One node: a sender for its own datagrams and NACKs, and a receiver thread running
+     * every datagram through the processor.
+     */
+    private final class Node {
+        final DatagramProcessor processor;
+        final MulticastSender sender;
+        final SocketReceiveEngine engine = new SocketReceiveEngine(MAX_DATAGRAM);
+        final PacketPool pool = new PacketPool(MAX_DATAGRAM + 1, 64);
+        final Map<String, Integer> delivered = new ConcurrentHashMap<>();
+        final Thread receiver;
+
+        Node(int id, LossInjector loss) throws IOException {
+            NackScheduler nacks = new NackScheduler(1024, 5 * MS, 30 * MS, 100 * MS, 16, new Random(id));
+            processor = new DatagramProcessor(id, nacks, new FrameDecoder());
+            processor.setReliableDelivery(true);
+            processor.setLossInjector(loss);
+            sender = new MulticastSender(group, port, loopback,
+                    new SendQueue(256, OverflowPolicy.BLOCK, 1000), null);
+            sender.enableSequencing(id, 0);
+            sender.enablePayloadEscaping();
+            sender.enableReliableDelivery(new RetransmitBuffer(512, 30 * MS), nacks);
+            processor.setSender(sender);
+            engine.open(group, port, loopback, 1 << 20);
+            sender.start();
+            receiver = new Thread(this::receive, "Receiver-" + Integer.toHexString(id));
+            receiver.start();
+        }
+
+        private void receive() {
+            while (engine.isOpen()) {
+                ReceivedPacket packet = pool.acquire();
+                try {
+                    engine.receive(packet);
+                } catch (IOException e) {
+                    packet.recycle();
+                    return;
+                }
+                processor.process(packet, this::deliver);
+            }
+        }
+
+        private void deliver(ReceivedPacket packet) {
+            delivered.merge(Arrays.toString(packet.copyPayload()), 1, Integer::sum);
+            packet.recycle();
+        }
+
+        void close() throws InterruptedException {
+            sender.stop();
+            engine.close();
+            receiver.join(1000);
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        loopback = NetworkInterface.getByInetAddress(InetAddress.getLoopbackAddress());
+        Assume.assumeNotNull(loopback);
+        group = InetAddress.getByName("239.255.42.10");
+        try (DatagramSocket probe = new DatagramSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        Assume.assumeTrue(loopbackCarriesMulticast());
+    }
+
+    /** Interfaces do not reliably advertise multicast support, so try it. */
+    private boolean loopbackCarriesMulticast() throws IOException {
+        try (MulticastSocket in = new MulticastSocket(port); MulticastSocket out = new MulticastSocket()) {
+            in.joinGroup(new InetSocketAddress(group, port), loopback);
+            in.setSoTimeout(1000);
+            out.setNetworkInterface(loopback);
+            out.send(new DatagramPacket(new byte[1], 1, group, port));
+            in.receive(new DatagramPacket(new byte[1], 1));
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        for (Node node : nodes) {
+            node.close();
+        }
+    }
+
+    private Node start(int id, LossInjector loss) throws IOException {
+        Node node = new Node(id, loss);
+        nodes.add(node);
+        return node;
+    }
+
+    private static byte[] message(int index) {
+        return ByteBuffer.allocate(4).putInt(index).array();
+    }
+
+    private static void send(Node node, List<byte[]> payloads) {
+        List<CompletableFuture<SendResult>> sent = new ArrayList<>();
+        for (byte[] payload : payloads) {
+            sent.add(node.sender.send(new MulticastSender.SendRequest(payload)));
+        }
+        CompletableFuture.allOf(sent.toArray(new CompletableFuture[0])).join();
+    }
+
+    private static void awaitDelivered(Node node, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (node.delivered.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        // Time for any extra copy to show up
+        Thread.sleep(300);
+    }
+
+    @Test(timeout = 30_000)
+    public void lostDatagramsAreNackedRepeatedAndDeliveredOnce() throws Exception {
+        Node source = start(SOURCE_ID, (data, offset, length) -> {
+            if (NackCodec.isNack(data, offset, length) && NackCodec.requesterId(data, offset) == RECEIVER_ID) {
+                for (int entry = 0; entry < NackCodec.entryCount(data, offset); entry++) {
+                    if (NackCodec.senderId(data, offset, entry) == SOURCE_ID) {
+                        int first = NackCodec.firstSequence(data, offset, entry);
+                        for (int i = 0; i < NackCodec.run(data, offset, entry); i++) {
+                            nacked.add(first + i);
+                        }
+                    }
+                }
+            }
+            return false;
+        });
+        Node receiver = start(RECEIVER_ID, (data, offset, length) -> {
+            if (!SequenceCodec.isSequenced(data, offset, length) || SequenceCodec.senderId(data, offset) != SOURCE_ID) {
+                return false;
+            }
+            int sequence = SequenceCodec.sequence(data, offset);
+            return arrivals.merge(sequence, 1, Integer::sum) == 1 && LOST.contains(sequence);
+        });
+
+        List<byte[]> payloads = new ArrayList<>();
+        for (int i = 0; i < MESSAGES; i++) {
+            payloads.add(message(i));
+        }
+        send(source, payloads);
+        awaitDelivered(receiver, MESSAGES);
+
+        for (int sequence : LOST) {
+            assertTrue("not NACKed: " + sequence, nacked.contains(sequence));
+            assertTrue("not repeated: " + sequence, arrivals.get(sequence) >= 2);
+        }
+        assertEquals(MESSAGES, receiver.delivered.size());
+        for (int i = 0; i < MESSAGES; i++) {
+            assertEquals("deliveries of " + i, Integer.valueOf(1),
+                    receiver.delivered.get(Arrays.toString(message(i))));
+        }
+        assertTrue(source.sender.getRetransmitBuffer().getRetransmittedCount() >= LOST.size());
+        assertEquals(0, receiver.processor.getNackScheduler().getLostCount());
+        assertEquals(0, receiver.processor.getNackScheduler().getPendingCount());
+    }
+
+    @Test(timeout = 30_000)
+    public void payloadsLookingLikeServiceDatagramsArriveIntact() throws Exception {
+        Node source = start(SOURCE_ID, null);
+        Node receiver = start(RECEIVER_ID, null);
+        List<byte[]> payloads = Arrays.asList(
+                new byte[]{(byte) 0xFE, 'N', 0, 0, 0, 1, 0},
+                new byte[]{(byte) 0xFE, 'H'},
+                new byte[]{(byte) 0xFE, 'B', 0, 1, 'x'},
+                new byte[]{(byte) 0xFE, 'E', 'y'},
+                new byte[]{(byte) 0xFE});
+        send(source, payloads);
+        awaitDelivered(receiver, payloads.size());
+
+        assertEquals(payloads.size(), receiver.delivered.size());
+        for (byte[] payload : payloads) {
+            assertEquals(Integer.valueOf(1), receiver.delivered.get(Arrays.toString(payload)));
+        }
+    }
+
+    @Test
+    public void nackRoundTripsThroughCodec() {
+        NackScheduler scheduler = new NackScheduler(16, 0, 0, 100 * MS, 3, new Random(1));
+        scheduler.onGap(1, 10, 3, 0);
+        scheduler.onGap(2, 100, 2, 0);
+        scheduler.onGap(1, 20, 1, 0);
+        byte[] nack = new byte[NackCodec.MAX_LENGTH];
+        int length = scheduler.poll(0, 77, nack);
+        assertTrue(NackCodec.isNack(nack, 0, length));
+        assertEquals(77, NackCodec.requesterId(nack, 0));
+        assertEquals(3, NackCodec.entryCount(nack, 0));
+        assertEquals(1, NackCodec.senderId(nack, 0, 0));
+        assertEquals(10, NackCodec.firstSequence(nack, 0, 0));
+        assertEquals(3, NackCodec.run(nack, 0, 0));
+        assertEquals(20, NackCodec.firstSequence(nack, 0, 1));
+        assertEquals(2, NackCodec.senderId(nack, 0, 2));
+        assertEquals(100, NackCodec.firstSequence(nack, 0, 2));
+        assertEquals(2, NackCodec.run(nack, 0, 2));
+        assertEquals(0, scheduler.poll(0, 77, nack));
+    }
+
+    @Test
+    public void heardNackPostponesOwnAndLateArrivalCancelsIt() {
+        NackScheduler scheduler = new NackScheduler(16, 10 * MS, 10 * MS, 100 * MS, 3, new Random(1));
+        byte[] nack = new byte[NackCodec.MAX_LENGTH];
+        scheduler.onGap(1, 5, 2, 0);
+        scheduler.onNackHeard(1, 5, 1, 5 * MS);
+        assertEquals(1, scheduler.getSuppressedCount());
+        int length = scheduler.poll(10 * MS, 9, nack);
+        assertEquals(1, NackCodec.entryCount(nack, 0));
+        assertEquals(6, NackCodec.firstSequence(nack, 0, 0));
+        assertTrue(length > 0);
+
+        scheduler.onReceived(1, 5);
+        assertEquals(1, scheduler.getRecoveredCount());
+        assertEquals(1, scheduler.getPendingCount());
+    }
+
+    @Test
+    public void givesUpAfterMaxAttempts() {
+        NackScheduler scheduler = new NackScheduler(16, 0, 0, MS, 2, new Random(1));
+        byte[] nack = new byte[NackCodec.MAX_LENGTH];
+        scheduler.onGap(1, 0, 1, 0);
+        assertTrue(scheduler.poll(0, 9, nack) > 0);
+        assertTrue(scheduler.poll(MS, 9, nack) > 0);
+        assertEquals(0, scheduler.poll(3 * MS, 9, nack));
+        assertEquals(1, scheduler.getLostCount());
+        assertEquals(Long.MAX_VALUE, scheduler.nanosUntilNextDeadline(3 * MS));
+    }
+}
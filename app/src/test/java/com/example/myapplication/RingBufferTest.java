@@ -0,0 +1,117 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link RingBuffer}.
+ */
+public class RingBufferTest {
+
+    @Test
+    public void capacityIsRoundedToPowerOfTwo() {
+        assertEquals(8, new RingBuffer<Integer>(5, OverflowPolicy.DROP_NEWEST, null).capacity());
+        assertEquals(16, new RingBuffer<Integer>(16, OverflowPolicy.DROP_NEWEST, null).capacity());
+    }
+
+    @Test
+    public void drainsInFifoOrderInBatches() {
+        RingBuffer<Integer> ring = new RingBuffer<>(8, OverflowPolicy.DROP_NEWEST, null);
+        for (int i = 0; i < 6; i++) {
+            assertTrue(ring.offer(i));
+        }
+
+        List<Integer> out = new ArrayList<>();
+        assertEquals(4, ring.drain(out::add, 4));
+        assertEquals(2, ring.drain(out::add, 4));
+        assertEquals(0, ring.drain(out::add, 4));
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5), out);
+        assertTrue(ring.isEmpty());
+    }
+
+    @Test
+    public void dropNewestDiscardsOfferedElement() {
+        List<Integer> dropped = new ArrayList<>();
+        RingBuffer<Integer> ring = new RingBuffer<>(2, OverflowPolicy.DROP_NEWEST, dropped::add);
+        ring.offer(1);
+        ring.offer(2);
+        assertFalse(ring.offer(3));
+
+        List<Integer> out = new ArrayList<>();
+        ring.drain(out::add, 10);
+        assertEquals(Arrays.asList(1, 2), out);
+        assertEquals(Arrays.asList(3), dropped);
+        assertEquals(1, ring.getDroppedCount());
+    }
+
+    @Test
+    public void dropOldestEvictsHead() {
+        List<Integer> dropped = new ArrayList<>();
+        RingBuffer<Integer> ring = new RingBuffer<>(2, OverflowPolicy.DROP_OLDEST, dropped::add);
+        ring.offer(1);
+        ring.offer(2);
+        assertTrue(ring.offer(3));
+
+        List<Integer> out = new ArrayList<>();
+        ring.drain(out::add, 10);
+        assertEquals(Arrays.asList(2, 3), out);
+        assertEquals(Arrays.asList(1), dropped);
+    }
+
+    @Test
+    public void blockWaitsForConsumer() throws Exception {
+        RingBuffer<Integer> ring = new RingBuffer<>(1, OverflowPolicy.BLOCK, null);
+        ring.offer(1);
+
+        CountDownLatch offered = new CountDownLatch(1);
+        Thread producer = new Thread(() -> {
+            ring.offer(2);
+            offered.countDown();
+        });
+        producer.start();
+        assertFalse(offered.await(50, TimeUnit.MILLISECONDS));
+
+        List<Integer> out = new ArrayList<>();
+        ring.drain(out::add, 1);
+        assertTrue(offered.await(1, TimeUnit.SECONDS));
+        ring.drain(out::add, 1);
+        assertEquals(Arrays.asList(1, 2), out);
+        assertEquals(0, ring.getDroppedCount());
+    }
+
+    @Test
+    public void concurrentDropOldestNeverLosesOrDuplicates() throws Exception {
+        final int total = 200_000;
+        RingBuffer<Integer> ring = new RingBuffer<>(64, OverflowPolicy.DROP_OLDEST, null);
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < total; i++) {
+                ring.offer(i);
+            }
+        });
+        producer.start();
+
+        long[] consumed = new long[1];
+        int[] last = {-1};
+        boolean[] ordered = {true};
+        while (producer.isAlive() || !ring.isEmpty()) {
+            ring.drain(value -> {
+                if (value <= last[0]) {
+                    ordered[0] = false;
+                }
+                last[0] = value;
+                consumed[0]++;
+            }, 32);
+        }
+        producer.join();
+
+        assertTrue(ordered[0]);
+        assertEquals(total, consumed[0] + ring.getDroppedCount());
+    }
+}
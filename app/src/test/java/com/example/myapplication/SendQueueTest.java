@@ -0,0 +1,100 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link SendQueue}.
+ */
+public class SendQueueTest {
+
+    @Test
+    public void dropNewestRejectsNewSend() throws Exception {
+        SendQueue queue = new SendQueue(1, OverflowPolicy.DROP_NEWEST, 0);
+        MulticastSender.SendRequest first = request();
+        MulticastSender.SendRequest second = request();
+
+        assertTrue(queue.offer(first));
+        assertFalse(queue.offer(second));
+        assertRejected(second.future);
+        assertFalse(first.future.isDone());
+        assertSame(first, queue.take());
+        assertEquals(1, queue.getRejectedCount());
+    }
+
+    @Test
+    public void dropOldestRejectsQueuedSend() throws Exception {
+        SendQueue queue = new SendQueue(1, OverflowPolicy.DROP_OLDEST, 0);
+        MulticastSender.SendRequest first = request();
+        MulticastSender.SendRequest second = request();
+
+        queue.offer(first);
+        assertTrue(queue.offer(second));
+        assertRejected(first.future);
+        assertSame(second, queue.take());
+    }
+
+    @Test
+    public void blockTimesOut() throws Exception {
+        SendQueue queue = new SendQueue(1, OverflowPolicy.BLOCK, 20);
+        queue.offer(request());
+        MulticastSender.SendRequest blocked = request();
+
+        long start = System.nanoTime();
+        assertFalse(queue.offer(blocked));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(15));
+        assertRejected(blocked.future);
+    }
+
+    @Test
+    public void blockResumesWhenSpaceFrees() throws Exception {
+        SendQueue queue = new SendQueue(1, OverflowPolicy.BLOCK, 5_000);
+        queue.offer(request());
+        Thread consumer = new Thread(() -> {
+            try {
+                Thread.sleep(20);
+                queue.take();
+            } catch (InterruptedException ignored) {
+            }
+        });
+        consumer.start();
+
+        assertTrue(queue.offer(request()));
+        consumer.join();
+        assertEquals(1, queue.size());
+    }
+
+    @Test
+    public void closeRejectsPendingAndReleasesTake() throws Exception {
+        SendQueue queue = new SendQueue(4, OverflowPolicy.DROP_NEWEST, 0);
+        MulticastSender.SendRequest pending = request();
+        queue.offer(pending);
+        queue.close();
+
+        assertRejected(pending.future);
+        assertNull(queue.take());
+        MulticastSender.SendRequest late = request();
+        assertFalse(queue.offer(late));
+        assertRejected(late.future);
+    }
+
+    private static MulticastSender.SendRequest request() {
+        return new MulticastSender.SendRequest(new byte[]{1, 2, 3});
+    }
+
+    private static void assertRejected(CompletableFuture<SendResult> future) throws InterruptedException {
+        assertTrue(future.isCompletedExceptionally());
+        try {
+            future.get();
+            fail("Expected rejection");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+    }
+}
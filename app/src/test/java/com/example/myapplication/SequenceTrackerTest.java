@@ -0,0 +1,148 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SequenceTrackerTest {
+    private final List<String> events = new ArrayList<>();
+    private final SequenceListener listener = new SequenceListener() {
+        @Override
+        public void onGap(int senderId, int firstMissing, int count) {
+            events.add("gap " + senderId + " " + firstMissing + "+" + count);
+        }
+
+        @Override
+        public void onReorder(int senderId, int sequence) {
+            events.add("late " + senderId + " " + sequence);
+        }
+
+        @Override
+        public void onDuplicate(int senderId, int sequence) {
+            events.add("dup " + senderId + " " + sequence);
+        }
+    };
+
+    @Test
+    public void inOrderStreamReportsNothing() {
+        SequenceTracker tracker = new SequenceTracker(4);
+        for (int seq = 100; seq < 200; seq++) {
+            assertTrue(tracker.record(7, seq, listener));
+        }
+        assertTrue(events.isEmpty());
+        assertEquals(100, tracker.getReceived(7));
+        assertEquals(0.0, tracker.getLossRatio(7), 0.0);
+    }
+
+    @Test
+    public void gapThenLateArrivalFillsIt() {
+        SequenceTracker tracker = new SequenceTracker(4);
+        tracker.record(1, 10, listener);
+        tracker.record(1, 14, listener);
+        assertEquals("gap 1 11+3", events.get(0));
+        assertEquals(3, tracker.getMissing(1));
+
+        tracker.record(1, 12, listener);
+        assertEquals("late 1 12", events.get(1));
+        assertEquals(2, tracker.getMissing(1));
+        assertEquals(1, tracker.getReordered(1));
+
+        assertFalse(tracker.record(1, 12, listener));
+        assertFalse(tracker.record(1, 14, listener));
+        assertEquals("dup 1 12", events.get(2));
+        assertEquals("dup 1 14", events.get(3));
+        assertEquals(2, tracker.getDuplicates(1));
+        assertEquals(2.0 / 5, tracker.getLossRatio(1), 1e-9);
+    }
+
+    @Test
+    public void sendersAreTrackedSeparately() {
+        SequenceTracker tracker = new SequenceTracker(1);
+        for (int sender = 0; sender < 50; sender++) {
+            tracker.record(sender, 0, listener);
+            tracker.record(sender, sender % 2 == 0 ? 1 : 2, listener);
+        }
+        assertEquals(50, tracker.getSenderCount());
+        assertEquals(25, tracker.getTotalMissing());
+        assertEquals(0, tracker.getMissing(0));
+        assertEquals(1, tracker.getMissing(1));
+    }
+
+    @Test
+    public void sequenceNumbersWrapAround() {
+        SequenceTracker tracker = new SequenceTracker(4);
+        tracker.record(3, Integer.MAX_VALUE - 1, listener);
+        tracker.record(3, Integer.MAX_VALUE, listener);
+        tracker.record(3, Integer.MIN_VALUE, listener);
+        tracker.record(3, Integer.MIN_VALUE + 1, listener);
+        assertTrue(events.isEmpty());
+        tracker.record(3, Integer.MIN_VALUE + 3, listener);
+        assertEquals("gap 3 " + (Integer.MIN_VALUE + 2) + "+1", events.get(0));
+        assertEquals(5, tracker.getReceived(3));
+    }
+
+    @Test(timeout = 5000)
+    public void listenerRunsOutsideTheLock() throws Exception {
+        SequenceTracker tracker = new SequenceTracker(4);
+        long[] seen = new long[1];
+        SequenceListener blocking = new SequenceListener() {
+            @Override
+            public void onGap(int senderId, int firstMissing, int count) {
+                // Another thread must be able to use the tracker while the listener runs
+                Thread reader = new Thread(() -> seen[0] = tracker.getMissing(senderId));
+                reader.start();
+                try {
+                    reader.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public void onReorder(int senderId, int sequence) {
+            }
+
+            @Override
+            public void onDuplicate(int senderId, int sequence) {
+            }
+        };
+        tracker.record(5, 0, blocking);
+        tracker.record(5, 4, blocking);
+        assertEquals(3, seen[0]);
+    }
+
+    @Test
+    public void farJumpBackIsARestart() {
+        SequenceTracker tracker = new SequenceTracker(4);
+        tracker.record(9, 50_000, listener);
+        tracker.record(9, 0, listener);
+        tracker.record(9, 1, listener);
+        assertTrue(events.isEmpty());
+        assertEquals(1, tracker.getRestartCount());
+    }
+
+    @Test
+    public void lateArrivalBeyondWindowIsStillCountedAsReorder() {
+        SequenceTracker tracker = new SequenceTracker(4);
+        tracker.record(2, 0, listener);
+        tracker.record(2, 2000, listener);
+        tracker.record(2, 5, listener);
+        assertEquals("late 2 5", events.get(1));
+        assertEquals(1998, tracker.getMissing(2));
+    }
+
+    @Test
+    public void duplicatesAreFoundAcrossTheWholeWindow() {
+        SequenceTracker tracker = new SequenceTracker(4);
+        for (int seq = 0; seq < 3000; seq += 2) {
+            tracker.record(4, seq, listener);
+        }
+        assertFalse(tracker.record(4, 3000 - SequenceTracker.WINDOW + 2, listener));
+        assertTrue(tracker.record(4, 3000 - SequenceTracker.WINDOW + 1, listener));
+        assertFalse(tracker.record(4, 3000 - SequenceTracker.WINDOW + 1, listener));
+        assertEquals(2, tracker.getDuplicates(4));
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TimerWheelTest {
+    private static final long TICK = 10;
+    private static final long START = -1_000;
+
+    @Test
+    public void firesAfterDeadlineTick() {
+        TimerWheel<String> wheel = new TimerWheel<>(TICK, 8, START);
+        List<String> fired = new ArrayList<>();
+        wheel.schedule("a", START + 25);
+
+        assertEquals(0, wheel.advance(START + 29, fired::add));
+        assertEquals(1, wheel.advance(START + 30, fired::add));
+        assertEquals("a", fired.get(0));
+        assertTrue(wheel.isEmpty());
+    }
+
+    @Test
+    public void deadlinesBeyondOneRevolutionWaitExtraRounds() {
+        TimerWheel<Integer> wheel = new TimerWheel<>(TICK, 8, START);
+        List<Integer> fired = new ArrayList<>();
+        // Same bucket as tick 1, two revolutions later
+        wheel.schedule(17, START + 17 * TICK);
+        wheel.schedule(1, START + TICK);
+
+        wheel.advance(START + 2 * TICK, fired::add);
+        assertEquals(1, fired.size());
+        wheel.advance(START + 17 * TICK, fired::add);
+        assertEquals(1, fired.size());
+        wheel.advance(START + 18 * TICK, fired::add);
+        assertEquals(2, fired.size());
+        assertEquals(17, (int) fired.get(1));
+    }
+
+    @Test
+    public void pastDeadlinesFireOnNextTick() {
+        TimerWheel<String> wheel = new TimerWheel<>(TICK, 8, START);
+        List<String> fired = new ArrayList<>();
+        wheel.advance(START + 100, fired::add);
+        wheel.schedule("late", START);
+        assertEquals(0, wheel.advance(START + 105, fired::add));
+        assertEquals(1, wheel.advance(START + 110, fired::add));
+    }
+
+    @Test
+    public void callbackMayReschedule() {
+        TimerWheel<Integer> wheel = new TimerWheel<>(TICK, 4, START);
+        int[] count = new int[1];
+        long[] now = {START};
+        wheel.schedule(0, START);
+        for (int i = 1; i <= 100; i++) {
+            now[0] = START + i * TICK;
+            wheel.advance(now[0], task -> {
+                count[0]++;
+                wheel.schedule(task, now[0] + 3 * TICK);
+            });
+        }
+        // A deadline inside tick n fires once tick n has ended: at ticks 1, 5, 9, ... 97
+        assertEquals(25, count[0]);
+        assertEquals(1, wheel.size());
+    }
+
+    @Test
+    public void nextTickDelay() {
+        TimerWheel<String> wheel = new TimerWheel<>(TICK, 8, START);
+        assertEquals(7, wheel.nanosUntilNextTick(START + 3));
+        wheel.advance(START + 12, task -> { });
+        assertEquals(8, wheel.nanosUntilNextTick(START + 12));
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TokenBucketTest {
+    private static final long START = -5_000_000_000L;
+
+    @Test
+    public void burstPassesThenPacketRateApplies() {
+        TokenBucket bucket = new TokenBucket(100, 0, 3, 0);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, bucket.reserve(100, START));
+        }
+        assertEquals(10_000_000L, bucket.reserve(100, START));
+        assertEquals(20_000_000L, bucket.reserve(100, START));
+    }
+
+    @Test
+    public void idleTimeRefillsBucket() {
+        TokenBucket bucket = new TokenBucket(100, 0, 2, 0);
+        bucket.reserve(1, START);
+        bucket.reserve(1, START);
+        assertTrue(bucket.reserve(1, START) > 0);
+        long later = START + 1_000_000_000L;
+        assertEquals(0, bucket.reserve(1, later));
+        assertEquals(0, bucket.reserve(1, later));
+        assertTrue(bucket.reserve(1, later) > 0);
+    }
+
+    @Test
+    public void byteRateLimitsLargePackets() {
+        // 1000 B/s with a 1000 byte burst: one full second of data, then 500 ms per 500 bytes
+        TokenBucket bucket = new TokenBucket(0, 1000, 1, 1000);
+        assertEquals(0, bucket.reserve(500, START));
+        assertEquals(0, bucket.reserve(500, START));
+        assertEquals(500_000_000L, bucket.reserve(500, START));
+    }
+
+    @Test
+    public void oversizedPacketWaitsOnlyForFullBucket() {
+        TokenBucket bucket = new TokenBucket(0, 1000, 1, 100);
+        assertEquals(0, bucket.reserve(400, START));
+        assertEquals(400_000_000L, bucket.reserve(400, START));
+    }
+
+    @Test
+    public void zeroRatesNeverWait() {
+        TokenBucket bucket = new TokenBucket(0, 0, 1, 0);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(0, bucket.reserve(1500, START));
+        }
+    }
+}